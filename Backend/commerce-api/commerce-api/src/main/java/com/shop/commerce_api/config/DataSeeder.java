@@ -5,6 +5,11 @@ import com.shop.commerce_api.repository.RoleRepository;
 import com.shop.commerce_api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
@@ -17,6 +22,7 @@ public class DataSeeder implements CommandLineRunner {
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final MongoTemplate mongoTemplate;
 
     @Override
     public void run(String... args) {
@@ -37,5 +43,11 @@ public class DataSeeder implements CommandLineRunner {
             userRepository.save(admin);
             System.out.println("✅ Default admin created: admin@shop.com / Admin@123");
         }
+
+        // Users saved before nameLower existed can't be found by name search
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("nameLower").exists(false).and("name").exists(true)),
+                AggregationUpdate.update().set("nameLower").toValue(StringOperators.valueOf("name").toLower()),
+                User.class);
     }
 }
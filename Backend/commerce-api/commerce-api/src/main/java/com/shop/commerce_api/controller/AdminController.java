@@ -1,11 +1,15 @@
 package com.shop.commerce_api.controller;
 
 
+import com.shop.commerce_api.dto.CursorPage;
 import com.shop.commerce_api.entity.ERole;
 import com.shop.commerce_api.entity.Role;
 import com.shop.commerce_api.entity.User;
 import com.shop.commerce_api.repository.RoleRepository;
 import com.shop.commerce_api.repository.UserRepository;
+import com.shop.commerce_api.security.TokenVersionRegistry;
+import com.shop.commerce_api.service.CachingUserDetailsService;
+import com.shop.commerce_api.service.UserDirectoryService;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.http.ResponseEntity;
@@ -24,9 +28,19 @@ public class AdminController {
 
     private final RoleRepository roles;
 
-    public AdminController(UserRepository users, RoleRepository roles){
+    private final TokenVersionRegistry tokenVersions;
+
+    private final CachingUserDetailsService userDetailsService;
+
+    private final UserDirectoryService directory;
+
+    public AdminController(UserRepository users, RoleRepository roles, TokenVersionRegistry tokenVersions,
+                           CachingUserDetailsService userDetailsService, UserDirectoryService directory){
         this.users = users;
         this.roles = roles;
+        this.tokenVersions = tokenVersions;
+        this.userDetailsService = userDetailsService;
+        this.directory = directory;
     }
 
     public record PromoteReq(
@@ -76,7 +90,9 @@ public class AdminController {
 
         var adminRole = requireRole(ERole.ADMIN);
         u.getRoles().add(adminRole);
+        tokenVersions.bump(u); // existing tokens still say CUSTOMER
         users.save(u);
+        userDetailsService.evict(email);
 
         return ResponseEntity.ok(new ApiMsg("User promoted to admin"));
     }
@@ -91,7 +107,7 @@ public class AdminController {
         if (!isAdmin(u)) return ResponseEntity.ok(new ApiMsg("User is not an admin"));
 
         // Safety: don't remove the last remaining admin
-        long adminCount = users.findAll().stream().filter(this::isAdmin).count();
+        long adminCount = users.countByRolesName(ERole.ADMIN);
         if (adminCount <= 1) {
             return ResponseEntity.badRequest().body(new ApiMsg("Cannot demote the last admin"));
         }
@@ -99,15 +115,32 @@ public class AdminController {
         u.setRoles(u.getRoles().stream()
                 .filter(r -> r.getName() != ERole.ADMIN)
                 .collect(Collectors.toSet()));
+        tokenVersions.bump(u); // existing tokens still say ADMIN
         users.save(u);
+        userDetailsService.evict(email);
 
         return ResponseEntity.ok(new ApiMsg("User demoted from admin"));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/users")
-    public ResponseEntity<?> listUsers() {
-        var list = users.findAll().stream()
+    public ResponseEntity<?> listUsers(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        ERole roleFilter = null;
+        if (role != null && !role.isBlank()) {
+            try {
+                roleFilter = ERole.valueOf(role.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(new ApiMsg("Unknown role: " + role));
+            }
+        }
+
+        CursorPage<User> page = directory.page(q, roleFilter, cursor, Math.max(1, Math.min(limit, 200)));
+        var rows = page.items().stream()
                 .map(u -> new UserRow(
                         u.getId(),
                         u.getName(),
@@ -115,7 +148,7 @@ public class AdminController {
                         u.getRoles().stream().map(r -> r.getName().name()).collect(Collectors.toSet())
                 ))
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(list);
+        return ResponseEntity.ok(new CursorPage<>(rows, page.nextCursor()));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -3,12 +3,24 @@ package com.shop.commerce_api.controller;
 import com.shop.commerce_api.dto.AlertDto;
 import com.shop.commerce_api.dto.RecentOrderDto;
 import com.shop.commerce_api.service.AdminDashboardService;
+import com.shop.commerce_api.service.DashboardStreamService;
+import com.shop.commerce_api.service.OrderArchiveService;
+import com.shop.commerce_api.service.ProductSalesService;
+import com.shop.commerce_api.service.SalesRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -16,10 +28,30 @@ import java.util.Map;
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminDashboardController {
 
+    private static final long MAX_RANGE_DAYS = 3 * 366;
+
     private final AdminDashboardService adminDashboardService;
+    private final SalesRollupService salesRollups;
+    private final DashboardStreamService dashboardStream;
+    private final ProductSalesService productSales;
+    private final OrderArchiveService orderArchive;
 
-    public AdminDashboardController(AdminDashboardService adminDashboardService) {
+    public AdminDashboardController(AdminDashboardService adminDashboardService,
+                                    SalesRollupService salesRollups,
+                                    DashboardStreamService dashboardStream,
+                                    ProductSalesService productSales,
+                                    OrderArchiveService orderArchive) {
         this.adminDashboardService = adminDashboardService;
+        this.salesRollups = salesRollups;
+        this.dashboardStream = dashboardStream;
+        this.productSales = productSales;
+        this.orderArchive = orderArchive;
+    }
+
+    // Server-Sent Events: a "snapshot" first, then order.created, order.status, kpis, sales and alerts
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return dashboardStream.subscribe();
     }
 
     @GetMapping("/kpis")
@@ -32,6 +64,80 @@ public class AdminDashboardController {
         return adminDashboardService.getWeeklySales();
     }
 
+    // GET /api/admin/dashboard/sales?from=2026-01-01&to=2026-12-31&granularity=month&tz=Europe/Paris
+    @GetMapping("/sales")
+    public ResponseEntity<?> getSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(defaultValue = "UTC") String tz
+    ) {
+        ZoneId zone;
+        SalesRollupService.Granularity g;
+        try {
+            zone = ZoneId.of(tz);
+            g = SalesRollupService.Granularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (DateTimeException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid tz or granularity");
+        }
+
+        LocalDate end = to != null ? to : LocalDate.now(zone);
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+            return ResponseEntity.badRequest().body("Invalid date range");
+        }
+        return ResponseEntity.ok(salesRollups.series(start, end, g, zone));
+    }
+
+    // POST /api/admin/dashboard/sales/backfill?from=2025-01-01&to=2025-12-31  (UTC days)
+    @PostMapping("/sales/backfill")
+    public ResponseEntity<?> backfillSales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) > MAX_RANGE_DAYS) {
+            return ResponseEntity.badRequest().body("Invalid date range");
+        }
+        // archived orders are gone from `orders`: rebuilding those days would wipe their rollups
+        if (from.isBefore(orderArchive.horizon())) {
+            return ResponseEntity.badRequest().body("Orders before " + orderArchive.horizon() + " are archived");
+        }
+        return ResponseEntity.ok(Map.of("days", salesRollups.backfill(from, to)));
+    }
+
+    // GET /api/admin/dashboard/top-products?from=2026-01-01&to=2026-01-31&limit=10&by=units  (UTC days)
+    @GetMapping("/top-products")
+    public ResponseEntity<?> getTopProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "revenue") String by
+    ) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+            return ResponseEntity.badRequest().body("Invalid date range");
+        }
+        if (limit < 1 || limit > 100 || !(by.equals("revenue") || by.equals("units"))) {
+            return ResponseEntity.badRequest().body("Invalid limit or sort");
+        }
+        return ResponseEntity.ok(productSales.topProducts(start, end, limit, by.equals("units")));
+    }
+
+    // GET /api/admin/dashboard/revenue-by-category?from=2026-01-01&to=2026-01-31  (UTC days)
+    @GetMapping("/revenue-by-category")
+    public ResponseEntity<?> getRevenueByCategory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+            return ResponseEntity.badRequest().body("Invalid date range");
+        }
+        return ResponseEntity.ok(productSales.revenueByCategory(start, end));
+    }
+
     @GetMapping("/recent-orders")
     public List<RecentOrderDto> getRecentOrders() {
         return adminDashboardService.getRecentOrders();
@@ -0,0 +1,105 @@
+package com.shop.commerce_api.controller;
+
+import com.shop.commerce_api.security.AuthRateLimiter;
+import com.shop.commerce_api.security.TokenRevocationList;
+import com.shop.commerce_api.service.DashboardStreamService;
+import com.shop.commerce_api.service.NotificationStreamService;
+import com.shop.commerce_api.service.OrderArchiveService;
+import com.shop.commerce_api.service.OrderIntakeService;
+import com.shop.commerce_api.service.OrderOutboxService;
+import com.shop.commerce_api.service.PasswordHashingService;
+import com.shop.commerce_api.service.ProductSalesService;
+import com.shop.commerce_api.service.RealtimeMetricsService;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/metrics")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminMetricsController {
+
+    private final PasswordHashingService passwordHashing;
+    private final AuthRateLimiter authRateLimiter;
+    private final OrderIntakeService orderIntake;
+    private final TokenRevocationList revocations;
+    private final RealtimeMetricsService realtimeMetrics;
+    private final DashboardStreamService dashboardStream;
+    private final ProductSalesService productSales;
+    private final OrderArchiveService orderArchive;
+    private final OrderOutboxService outbox;
+    private final NotificationStreamService notificationStream;
+
+    public AdminMetricsController(PasswordHashingService passwordHashing,
+                                  AuthRateLimiter authRateLimiter,
+                                  OrderIntakeService orderIntake,
+                                  TokenRevocationList revocations,
+                                  RealtimeMetricsService realtimeMetrics,
+                                  DashboardStreamService dashboardStream,
+                                  ProductSalesService productSales,
+                                  OrderArchiveService orderArchive,
+                                  OrderOutboxService outbox,
+                                  NotificationStreamService notificationStream) {
+        this.passwordHashing = passwordHashing;
+        this.authRateLimiter = authRateLimiter;
+        this.orderIntake = orderIntake;
+        this.revocations = revocations;
+        this.realtimeMetrics = realtimeMetrics;
+        this.dashboardStream = dashboardStream;
+        this.productSales = productSales;
+        this.orderArchive = orderArchive;
+        this.outbox = outbox;
+        this.notificationStream = notificationStream;
+    }
+
+    @GetMapping("/auth")
+    public Map<String, Object> auth() {
+        Map<String, Object> res = new HashMap<>();
+        res.put("passwordHashing", passwordHashing.stats());
+        res.put("rateLimiter", authRateLimiter.stats());
+        res.put("revokedTokens", revocations.stats());
+        return res;
+    }
+
+    @GetMapping("/order-intake")
+    public Map<String, Object> orderIntake() {
+        return orderIntake.stats();
+    }
+
+    // GET /api/admin/metrics/realtime?windowSeconds=300  (at most the last hour)
+    @GetMapping("/realtime")
+    public Map<String, Object> realtime(@RequestParam(defaultValue = "300") long windowSeconds) {
+        return realtimeMetrics.snapshot(Duration.ofSeconds(windowSeconds));
+    }
+
+    // how far behind the orders the product_sales view is
+    @GetMapping("/product-sales")
+    public Map<String, Object> productSales() {
+        return productSales.stats();
+    }
+
+    @GetMapping("/order-archive")
+    public Map<String, Object> orderArchive() {
+        return orderArchive.stats();
+    }
+
+    // backlog and lag of the order status outbox
+    @GetMapping("/outbox")
+    public Map<String, Object> outbox() {
+        return outbox.stats();
+    }
+
+    @GetMapping("/streams")
+    public Map<String, Object> streams() {
+        Map<String, Object> res = new HashMap<>();
+        res.put("dashboard", dashboardStream.stats());
+        res.put("notifications", notificationStream.stats());
+        return res;
+    }
+}
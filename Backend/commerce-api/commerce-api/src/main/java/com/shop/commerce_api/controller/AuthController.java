@@ -9,18 +9,30 @@ import com.shop.commerce_api.entity.Role;
 import com.shop.commerce_api.entity.User;
 import com.shop.commerce_api.repository.RoleRepository;
 import com.shop.commerce_api.repository.UserRepository;
+import com.shop.commerce_api.security.AuthRateLimiter;
+import com.shop.commerce_api.security.AuthUser;
 import com.shop.commerce_api.security.JwtUtils;
+import com.shop.commerce_api.security.TokenRevocationList;
+import com.shop.commerce_api.security.TokenVersionRegistry;
+import com.shop.commerce_api.service.CachingUserDetailsService;
+import com.shop.commerce_api.service.PasswordHashingService;
+import com.shop.commerce_api.service.RealtimeMetricsService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -33,49 +45,107 @@ public class AuthController {
     RoleRepository roleRepository;
 
     @Autowired
-    BCryptPasswordEncoder encoder;
+    PasswordHashingService passwordHashing;
+
+    @Autowired
+    AuthRateLimiter rateLimiter;
 
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    CachingUserDetailsService userDetailsService;
+
+    @Autowired
+    TokenVersionRegistry tokenVersions;
+
+    @Autowired
+    TokenRevocationList revocations;
+
+    @Autowired
+    RealtimeMetricsService realtimeMetrics;
+
     @PostMapping("/signup")
-    public ResponseEntity<?> register(@RequestBody @jakarta.validation.Valid SignupRequest request){
+    public ResponseEntity<?> register(@RequestBody @jakarta.validation.Valid SignupRequest request,
+                                      HttpServletRequest http){
         String email = request.getEmail().trim().toLowerCase();
+        if (!rateLimiter.tryAcquire(http.getRemoteAddr(), email)) {
+            return tooManyRequests();
+        }
         if (userRepository.existsByEmail(email)){
             return ResponseEntity.status(409).body("Email already exists");
         }
         User user = new User();
         user.setName(request.getName());
         user.setEmail(email);
-        user.setPassword(encoder.encode(request.getPassword()));
+        try {
+            user.setPassword(passwordHashing.encode(request.getPassword()));
+        } catch (RejectedExecutionException e) {
+            return tooManyRequests();
+        }
 
         Role customerRole = roleRepository.findByName(ERole.CUSTOMER)
                 .orElseThrow(() -> new IllegalStateException("Role not found: CUSTOMER"));
         user.setRoles(Set.of(customerRole));
 
         userRepository.save(user);
+        realtimeMetrics.recordSignup(email);
         return ResponseEntity.status(201).body("User registered successfully");
     }
 
     @PostMapping("/signin")
-    public ResponseEntity<?> login(@RequestBody @jakarta.validation.Valid LoginRequest request) {
+    public ResponseEntity<?> login(@RequestBody @jakarta.validation.Valid LoginRequest request,
+                                   HttpServletRequest http) {
         String email = request.getEmail().trim().toLowerCase();
+        if (!rateLimiter.tryAcquire(http.getRemoteAddr(), email)) {
+            return tooManyRequests();
+        }
 
-        User user = userRepository.findByEmail(email).orElse(null);
-        if (user == null) {
+        AuthUser user;
+        try {
+            user = (AuthUser) userDetailsService.loadUserByUsername(email);
+            if (!tokenVersions.isCurrent(user.getId(), user.getTokenVersion())) {
+                // roles changed on another node since this entry was cached
+                userDetailsService.evict(email);
+                user = (AuthUser) userDetailsService.loadUserByUsername(email);
+            }
+        } catch (UsernameNotFoundException e) {
             return ResponseEntity.status(401).body("Invalid credentials");
         }
-        if (!encoder.matches(request.getPassword(), user.getPassword())) {
-            return ResponseEntity.status(401).body("Invalid credentials");
+        try {
+            if (!passwordHashing.matches(request.getPassword(), user.getPassword())) {
+                return ResponseEntity.status(401).body("Invalid credentials");
+            }
+        } catch (RejectedExecutionException e) {
+            return tooManyRequests();
         }
 
-        String token = jwtUtils.generateJwt(user.getEmail());
-        Set<String> roles = user.getRoles().stream()
-                .map(r -> r.getName().name())
-                .collect(java.util.stream.Collectors.toSet());
+        String token = jwtUtils.generateJwt(user);
+        realtimeMetrics.recordSignin(email);
 
-        return ResponseEntity.ok(new JwtResponse(token, user.getName(), user.getEmail(), roles));
+        return ResponseEntity.ok(new JwtResponse(token, user.getName(), user.getUsername(), user.getRoleNames()));
     }
 
+    // /api/auth/** skips JwtFilter, so the token is read here
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String header) {
+        String prefix = "Bearer ";
+        if (header != null && header.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            Claims claims = jwtUtils.parseJwt(header.substring(prefix.length()));
+            // tokens issued before jti was added can't be revoked one by one; they just expire
+            if (claims != null && claims.getId() != null) {
+                revocations.revoke(claims.getId(),
+                        claims.get(JwtUtils.CLAIM_USER_ID, String.class),
+                        claims.getExpiration().toInstant());
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
 
+    // fail fast: over the rate limit, or bcrypt capacity is used up
+    private static ResponseEntity<?> tooManyRequests() {
+        return ResponseEntity.status(429)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many attempts, please retry shortly");
+    }
 }
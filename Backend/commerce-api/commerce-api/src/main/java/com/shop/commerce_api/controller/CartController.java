@@ -6,6 +6,7 @@ import com.shop.commerce_api.dto.CartUpdateRequest;
 import com.shop.commerce_api.entity.Cart;
 import com.shop.commerce_api.entity.CartItem;
 import com.shop.commerce_api.repository.CartRepository;
+import com.shop.commerce_api.service.RealtimeMetricsService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -21,9 +22,11 @@ import java.util.stream.Collectors;
 public class CartController {
 
     private final CartRepository cartRepository;
+    private final RealtimeMetricsService realtimeMetrics;
 
-    public CartController(CartRepository cartRepository) {
+    public CartController(CartRepository cartRepository, RealtimeMetricsService realtimeMetrics) {
         this.cartRepository = cartRepository;
+        this.realtimeMetrics = realtimeMetrics;
     }
 
     @GetMapping
@@ -32,6 +35,7 @@ public class CartController {
             return ResponseEntity.status(401).build();
         }
         String userId = authentication.getName();
+        realtimeMetrics.recordCartActivity(userId);
 
         Cart cart = cartRepository.findByUserId(userId).orElse(null);
 
@@ -57,6 +61,7 @@ public class CartController {
             return ResponseEntity.status(401).build();
         }
         String userId = authentication.getName();
+        realtimeMetrics.recordCartActivity(userId);
 
         List<CartItem> items = request.getItems().stream()
                 .map(this::toEntity)
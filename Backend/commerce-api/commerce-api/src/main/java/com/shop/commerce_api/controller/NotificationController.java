@@ -1,42 +1,80 @@
 package com.shop.commerce_api.controller;
 
 import com.shop.commerce_api.entity.Notification;
-import com.shop.commerce_api.repository.NotificationRepository;
+import com.shop.commerce_api.service.NotificationService;
+import com.shop.commerce_api.service.NotificationStreamService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/notifications")
 public class NotificationController {
 
-    private final NotificationRepository notificationRepository;
+    private static final int MAX_LIMIT = 100;
 
-    public NotificationController(NotificationRepository notificationRepository) {
-        this.notificationRepository = notificationRepository;
+    private final NotificationService notificationService;
+    private final NotificationStreamService notificationStream;
+
+    public NotificationController(NotificationService notificationService,
+                                  NotificationStreamService notificationStream) {
+        this.notificationService = notificationService;
+        this.notificationStream = notificationStream;
     }
 
-    // GET user notifications
+    // GET /api/notifications?limit=20&before=2026-01-01T10:00:00Z&beforeId=...
+    // newest first; before/beforeId are the createdAt and id of the last notification shown
     @GetMapping
     public List<Notification> getNotifications(
+            @AuthenticationPrincipal(expression = "username") String email,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant before,
+            @RequestParam(required = false) String beforeId) {
+        return notificationService.page(email, before, beforeId, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    // Server-Sent Events: a "notification" event per new notification; on reconnect,
+    // Last-Event-ID replays the missed ones (or sends "resync" when there are too many)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @AuthenticationPrincipal(expression = "username") String email,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return notificationStream.subscribe(email, lastEventId);
+    }
+
+    // GET /api/notifications/unread-count  -> {"unread": 3}
+    @GetMapping("/unread-count")
+    public Map<String, Long> unreadCount(
             @AuthenticationPrincipal(expression = "username") String email) {
-        return notificationRepository.findByUserEmailOrderByCreatedAtDesc(email);
+        return Map.of("unread", notificationService.unreadCount(email));
     }
 
+    // POST /api/notifications/read[?upTo=2026-01-01T10:00:00Z]  -> {"updated": 12}
     @PostMapping("/read")
-    public String markAllRead(
-            @AuthenticationPrincipal(expression = "username") String email) {
-        List<Notification> list = notificationRepository.findByUserEmailOrderByCreatedAtDesc(email);
-        list.forEach(n -> n.setRead(true));
-        notificationRepository.saveAll(list);
-        return "OK";
+    public Map<String, Long> markAllRead(
+            @AuthenticationPrincipal(expression = "username") String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant upTo) {
+        return Map.of("updated", notificationService.markRead(email, upTo));
+    }
+
+    // POST /api/notifications/{id}/read  -> {"updated": 1}, or 0 if already read
+    @PostMapping("/{id}/read")
+    public Map<String, Long> markRead(
+            @AuthenticationPrincipal(expression = "username") String email,
+            @PathVariable String id) {
+        return Map.of("updated", notificationService.markRead(email, id));
     }
 
+    // DELETE /api/notifications/clear  -> {"deleted": 40}
     @DeleteMapping("/clear")
-    public String clearAll(@AuthenticationPrincipal(expression = "username") String email) {
-        notificationRepository.deleteByUserEmail(email);
-        return "OK";
+    public Map<String, Long> clearAll(@AuthenticationPrincipal(expression = "username") String email) {
+        return Map.of("deleted", notificationService.clear(email));
     }
 
 }
@@ -1,104 +1,206 @@
 package com.shop.commerce_api.controller;
 
+import com.shop.commerce_api.dto.CursorPage;
 import com.shop.commerce_api.dto.OrderResponse;
-import com.shop.commerce_api.entity.Notification;
+import com.shop.commerce_api.dto.UserSummary;
 import com.shop.commerce_api.entity.Order;
-import com.shop.commerce_api.entity.OrderItem;
 import com.shop.commerce_api.entity.OrderStatus;
-import com.shop.commerce_api.entity.Product;
-import com.shop.commerce_api.repository.NotificationRepository;
 import com.shop.commerce_api.repository.OrderRepository;
-import com.shop.commerce_api.repository.ProductRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import com.shop.commerce_api.service.OrderArchiveService;
+import com.shop.commerce_api.service.OrderExportService;
+import com.shop.commerce_api.service.OrderSearchService;
+import com.shop.commerce_api.service.OrderStatusService;
+import com.shop.commerce_api.service.UserSummaryResolver;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin/orders")
 @PreAuthorize("hasRole('ADMIN')")
 public class OrderAdminController {
 
+    private static final int MAX_BULK_ORDERS = 1000;
+
     private final OrderRepository orderRepository;
-    private final NotificationRepository notificationRepository;
-    private final ProductRepository productRepository;
+    private final UserSummaryResolver userSummaries;
+    private final OrderSearchService orderSearch;
+    private final OrderStatusService orderStatus;
+    private final OrderArchiveService orderArchive;
+    private final OrderExportService orderExport;
 
     public OrderAdminController(OrderRepository orderRepository,
-                                NotificationRepository notificationRepository,
-                                ProductRepository productRepository) {
+                                UserSummaryResolver userSummaries,
+                                OrderSearchService orderSearch,
+                                OrderStatusService orderStatus,
+                                OrderArchiveService orderArchive,
+                                OrderExportService orderExport) {
         this.orderRepository = orderRepository;
-        this.notificationRepository = notificationRepository;
-        this.productRepository = productRepository;
+        this.userSummaries = userSummaries;
+        this.orderSearch = orderSearch;
+        this.orderStatus = orderStatus;
+        this.orderArchive = orderArchive;
+        this.orderExport = orderExport;
     }
 
+    public record BulkStatusRequest(
+            List<String> ids,
+            OrderStatus status
+    ) {}
+
+    // GET /api/admin/orders?status=PENDING&from=2026-01-01&to=2026-01-07&email=a@b.c&minTotal=50
+    //     &sort=total&dir=desc&cursor=...&limit=20   (from/to are UTC days, both inclusive)
     @GetMapping
-    public Page<OrderResponse> list(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size
+    public ResponseEntity<?> list(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) Double minTotal,
+            @RequestParam(required = false) Double maxTotal,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String dir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        OrderSearchService.SortField sortField = switch (sort) {
+            case "createdAt" -> OrderSearchService.SortField.CREATED_AT;
+            case "total" -> OrderSearchService.SortField.TOTAL;
+            default -> null;
+        };
+        if (sortField == null || !(dir.equals("asc") || dir.equals("desc"))) {
+            return ResponseEntity.badRequest().body("Invalid sort");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().body("Invalid date range");
+        }
+
+        OrderSearchService.Filter filter = new OrderSearchService.Filter(
+                status,
+                from != null ? from.atStartOfDay(ZoneOffset.UTC).toInstant() : null,
+                to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() : null,
+                email,
+                userId,
+                minTotal,
+                maxTotal
+        );
+
+        CursorPage<Order> page;
+        try {
+            page = orderSearch.search(filter, sortField, dir.equals("asc"), cursor, Math.max(1, Math.min(limit, 200)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        // customer names for this page only, one query
+        Map<String, UserSummary> users = userSummaries.resolve(
+                page.items().stream().map(Order::getUserId).toList());
+        List<OrderResponse> items = page.items().stream()
+                .map(o -> withCustomer(toOrderResponse(o), users.get(o.getUserId())))
+                .toList();
+        return ResponseEntity.ok(new CursorPage<>(items, page.nextCursor()));
+    }
+
+    // GET /api/admin/orders/export?from=2026-01-01&to=2026-01-31&status=SHIPPED&format=csv|ndjson
+    //     (UTC days, both inclusive; streamed, one CSV row per order line)
+    @GetMapping("/export")
+    public ResponseEntity<?> export(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(defaultValue = "csv") String format
     ) {
-        PageRequest pageable = PageRequest.of(page, size);
-        return orderRepository.findAll(pageable)
-                .map(this::toOrderResponse);
+        OrderExportService.Format fmt = switch (format) {
+            case "csv" -> OrderExportService.Format.CSV;
+            case "ndjson" -> OrderExportService.Format.NDJSON;
+            default -> null;
+        };
+        if (fmt == null) {
+            return ResponseEntity.badRequest().body("Invalid format");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().body("Invalid date range");
+        }
+
+        Instant start = from != null ? from.atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+        Instant end = to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() : null;
+        StreamingResponseBody body = out -> orderExport.export(start, end, status, fmt, out);
+
+        String filename = "orders-" + (from != null ? from : "start") + "-" + (to != null ? to : "now")
+                + (fmt == OrderExportService.Format.CSV ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(fmt == OrderExportService.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponse> get(@PathVariable String id) {
-        return orderRepository.findById(id)
-                .map(o -> ResponseEntity.ok(toOrderResponse(o)))
+        return orderArchive.findById(id)
+                .map(o -> ResponseEntity.ok(withCustomer(toOrderResponse(o),
+                        userSummaries.resolve(Collections.singletonList(o.getUserId())).get(o.getUserId()))))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PatchMapping("/{id}/status")
-    public ResponseEntity<OrderResponse> updateStatus(
+    public ResponseEntity<?> updateStatus(
             @PathVariable String id,
             @RequestParam OrderStatus status
     ) {
-        return orderRepository.findById(id)
-                .map(order -> {
-
-                    OrderStatus oldStatus = order.getStatus();
-
-                    // ✅ Decrease stock once, when moving from PENDING to PAID or SHIPPED
-                    boolean shouldDecreaseStock =
-                            (oldStatus == OrderStatus.PENDING) &&
-                                    (status == OrderStatus.PAID || status == OrderStatus.SHIPPED);
-
-                    if (shouldDecreaseStock && order.getItems() != null) {
-                        for (OrderItem item : order.getItems()) {
-
-                            productRepository.findById(item.getProductId())
-                                    .ifPresent(product -> {
-                                        Integer currentStock = product.getStock();
-                                        int safeCurrentStock = (currentStock != null) ? currentStock : 0;
-
-                                        int newStock = Math.max(0, safeCurrentStock - item.getQuantity());
-                                        product.setStock(newStock);
-                                        productRepository.save(product);
-                                    });
-                        }
-                    }
-
-                    // Update status
-                    order.setStatus(status);
-                    Order saved = orderRepository.save(order);
-
-                    // create notification
-                    Notification notification = Notification.builder()
-                            .userEmail(order.getEmail())
-                            .message("Your order #" + order.getId() + " is now " + status)
-                            .read(false)
-                            .createdAt(Instant.now())
-                            .build();
-                    notificationRepository.save(notification);
-
-                    return ResponseEntity.ok(toOrderResponse(saved));
-                })
-                .orElse(ResponseEntity.notFound().build());
+        // same path as the bulk endpoint: stock rules and a write conditional on the status read
+        OrderStatusService.Result result = orderStatus.transition(List.of(id), status).get(0);
+        return switch (result.outcome()) {
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case INSUFFICIENT_STOCK -> ResponseEntity.status(409).body(result.stock());
+            case CONFLICT -> ResponseEntity.status(409).body("Order was changed by someone else, please reload");
+            case UPDATED, UNCHANGED -> orderRepository.findById(id)
+                    .<ResponseEntity<?>>map(o -> ResponseEntity.ok(toOrderResponse(o)))
+                    .orElse(ResponseEntity.notFound().build());
+        };
+    }
+
+    // POST /api/admin/orders/status  {"ids": [...], "status": "SHIPPED"}  -> one result per order
+    @PostMapping("/status")
+    public ResponseEntity<?> updateStatuses(@RequestBody BulkStatusRequest request) {
+        if (request.status() == null || request.ids() == null || request.ids().isEmpty()) {
+            return ResponseEntity.badRequest().body("ids and status are required");
+        }
+        if (request.ids().size() > MAX_BULK_ORDERS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_BULK_ORDERS + " orders per request");
+        }
+
+        List<OrderStatusService.Result> results = orderStatus.transition(request.ids(), request.status());
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("status", request.status());
+        res.put("updated", results.stream().filter(r -> r.outcome() == OrderStatusService.Outcome.UPDATED).count());
+        res.put("results", results);
+        return ResponseEntity.ok(res);
     }
 
+    private static OrderResponse withCustomer(OrderResponse res, UserSummary user) {
+        if (user != null) {
+            res.setCustomerName(user.name());
+            res.setCustomerEmail(user.email());
+        }
+        return res;
+    }
 
     private OrderResponse toOrderResponse(Order o) {
         return OrderResponse.builder()
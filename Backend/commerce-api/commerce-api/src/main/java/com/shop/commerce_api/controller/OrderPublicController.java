@@ -1,55 +1,83 @@
 package com.shop.commerce_api.controller;
 
+import com.shop.commerce_api.dto.CursorPage;
 import com.shop.commerce_api.dto.OrderItemRequest;
 import com.shop.commerce_api.dto.OrderRequest;
 import com.shop.commerce_api.dto.OrderResponse;
+import com.shop.commerce_api.dto.StockReservationResult;
 import com.shop.commerce_api.entity.Order;
 import com.shop.commerce_api.entity.OrderItem;
 import com.shop.commerce_api.entity.OrderStatus;
-import com.shop.commerce_api.entity.User;
 import com.shop.commerce_api.repository.OrderRepository;
-import com.shop.commerce_api.repository.UserRepository;
+import com.shop.commerce_api.security.AuthUser;
+import com.shop.commerce_api.service.IdempotencyService;
+import com.shop.commerce_api.service.InventoryService;
+import com.shop.commerce_api.service.OrderArchiveService;
+import com.shop.commerce_api.service.OrderIntakeService;
+import com.shop.commerce_api.service.RealtimeMetricsService;
 import jakarta.validation.Valid;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.*;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderPublicController {
 
     private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private final InventoryService inventoryService;
+    private final IdempotencyService idempotencyService;
+    private final OrderIntakeService orderIntakeService;
+    private final RealtimeMetricsService realtimeMetrics;
+    private final OrderArchiveService orderArchive;
 
     public OrderPublicController(OrderRepository orderRepository,
-                                 UserRepository userRepository) {
+                                 InventoryService inventoryService,
+                                 IdempotencyService idempotencyService,
+                                 OrderIntakeService orderIntakeService,
+                                 RealtimeMetricsService realtimeMetrics,
+                                 OrderArchiveService orderArchive) {
         this.orderRepository = orderRepository;
-        this.userRepository = userRepository;
+        this.inventoryService = inventoryService;
+        this.idempotencyService = idempotencyService;
+        this.orderIntakeService = orderIntakeService;
+        this.realtimeMetrics = realtimeMetrics;
+        this.orderArchive = orderArchive;
     }
 
     // POST /api/orders  -> place order
     @PostMapping
-    public ResponseEntity<OrderResponse> placeOrder(
+    public ResponseEntity<?> placeOrder(
             Authentication authentication,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody OrderRequest request
     ) {
-        String userId = null;
-
-        // Resolve logged-in user and store their Mongo _id in the order
-        if (authentication != null) {
-            String email = authentication.getName();  // principal = email (from your JWT setup)
-            Optional<User> userOpt = userRepository.findByEmail(email);
-            if (userOpt.isPresent()) {
-                userId = userOpt.get().getId();
-            }
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createOrder(authentication, request);
+        }
+        if (idempotencyKey.length() > 255) {
+            return ResponseEntity.badRequest().body("Idempotency-Key too long");
         }
 
+        // retries with the same key get the first response back instead of a second order
+        String scope = authentication != null ? authentication.getName() : "anonymous";
+        return idempotencyService.execute(
+                scope,
+                idempotencyKey.trim(),
+                IdempotencyService.fingerprint(request),
+                () -> createOrder(authentication, request)
+        );
+    }
+
+    private ResponseEntity<?> createOrder(Authentication authentication, OrderRequest request) {
+        // the user's Mongo _id comes with the token, no lookup needed
+        String userId = userIdOf(authentication);
+
         List<OrderItem> items = request.getItems().stream()
                 .map(this::toOrderItem)
                 .toList();
@@ -58,6 +86,12 @@ public class OrderPublicController {
                 .mapToDouble(i -> i.getPrice() * i.getQuantity())
                 .sum();
 
+        // Take the items out of stock up front; reject instead of overselling
+        StockReservationResult reservation = inventoryService.reserve(items);
+        if (!reservation.reserved()) {
+            return ResponseEntity.status(409).body(reservation);
+        }
+
         Order order = Order.builder()
                 .userId(userId)                          // ✅ now a real User.id, not email
                 .fullName(request.getFullName())
@@ -70,37 +104,73 @@ public class OrderPublicController {
                 .items(items)
                 .total(total)
                 .status(OrderStatus.PENDING)             // stays PENDING until admin sets PAID/SHIPPED
+                .stockReserved(true)
                 .createdAt(Instant.now())
                 .build();
 
-        Order saved = orderRepository.save(order);
-        return ResponseEntity.ok(toOrderResponse(saved));
+        // Group-committed by the intake writer; a full queue means back off
+        CompletableFuture<Order> ack;
+        try {
+            ack = orderIntakeService.submit(order);
+        } catch (RejectedExecutionException e) {
+            inventoryService.release(items);
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many orders right now, please retry");
+        }
+
+        // counted once accepted; guests by the email on the order
+        realtimeMetrics.recordOrder(
+                authentication != null ? authentication.getName() : request.getEmail(), total);
+
+        try {
+            Order saved = ack.get(orderIntakeService.ackTimeoutMs(), TimeUnit.MILLISECONDS);
+            return ResponseEntity.ok(toOrderResponse(saved));
+        } catch (TimeoutException e) {
+            // still queued: the writer owns it now (and releases the stock if it fails);
+            // retrying with the same Idempotency-Key answers 200 once it is written
+            return ResponseEntity.accepted().body(toOrderResponse(order));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OrderIntakeService.OutcomeUnknownException) {
+                // may already be in Mongo: answer with its id, a retry with the key resolves it
+                return ResponseEntity.accepted().body(toOrderResponse(order));
+            }
+            return ResponseEntity.status(503).body("Order could not be saved, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.accepted().body(toOrderResponse(order));
+        }
     }
 
-    // GET /api/orders  -> current user’s orders
+    // GET /api/orders?cursor=...&limit=10  -> current user’s orders, newest first
     @GetMapping
-    public Page<OrderResponse> myOrders(
+    public ResponseEntity<?> myOrders(
             Authentication authentication,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit
     ) {
-        PageRequest pageable = PageRequest.of(page, size);
-
-        if (authentication == null) {
-            // not logged in -> no user-specific orders
-            return Page.empty(pageable);
+        // not logged in -> no user-specific orders
+        String userId = userIdOf(authentication);
+        if (userId == null) {
+            return ResponseEntity.ok(new CursorPage<OrderResponse>(List.of(), null));
         }
 
-        String email = authentication.getName();
-        Optional<User> userOpt = userRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            return Page.empty(pageable);
+        // older orders live in the monthly archives
+        CursorPage<Order> page;
+        try {
+            page = orderArchive.findByUserId(userId, cursor, Math.max(1, Math.min(limit, 50)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
+        return ResponseEntity.ok(new CursorPage<>(
+                page.items().stream().map(this::toOrderResponse).toList(), page.nextCursor()));
+    }
 
-        String userId = userOpt.get().getId();
-
-        return orderRepository.findByUserId(userId, pageable)
-                .map(this::toOrderResponse);
+    private static String userIdOf(Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof AuthUser user) {
+            return user.getId();
+        }
+        return null;
     }
 
     private OrderItem toOrderItem(OrderItemRequest dto) {
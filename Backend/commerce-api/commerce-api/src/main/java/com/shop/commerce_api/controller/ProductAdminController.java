@@ -8,11 +8,18 @@ import com.shop.commerce_api.entity.Category;
 import com.shop.commerce_api.entity.Product;
 import com.shop.commerce_api.repository.CategoryRepository;
 import com.shop.commerce_api.repository.ProductRepository;
+import com.shop.commerce_api.service.LowStockService;
+import com.shop.commerce_api.service.StripedStockService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,6 +31,7 @@ import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,15 +42,29 @@ public class ProductAdminController {
 
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
+    private final StripedStockService stripedStock;
+    private final LowStockService lowStock;
+    private final MongoTemplate mongoTemplate;
 
     public ProductAdminController(
             CategoryRepository categoryRepository,
-            ProductRepository productRepository
+            ProductRepository productRepository,
+            StripedStockService stripedStock,
+            LowStockService lowStock,
+            MongoTemplate mongoTemplate
     ) {
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
+        this.stripedStock = stripedStock;
+        this.lowStock = lowStock;
+        this.mongoTemplate = mongoTemplate;
     }
 
+    public record StockModeRequest(
+            boolean striped,
+            Integer buckets
+    ) {}
+
     /* ================================
                  CATEGORIES
        ================================ */
@@ -56,20 +78,20 @@ public class ProductAdminController {
                     "Category already exists for this gender");
         }
 
-        Category saved = categoryRepository.save(
-                new Category(request.getName(), request.getGender())
-        );
+        Category category = new Category(request.getName(), request.getGender());
+        category.setLowStockThreshold(thresholdOrNull(request.getLowStockThreshold()));
+        Category saved = categoryRepository.save(category);
 
         return ResponseEntity.created(
                 URI.create("/api/admin/catalog/categories/" + saved.getId())
-        ).body(new CategoryResponse(saved.getId(), saved.getName(), saved.getGender()));
+        ).body(toCategoryResponse(saved));
     }
 
     @GetMapping("/categories")
     public List<CategoryResponse> listCategories() {
         return categoryRepository.findAll()
                 .stream()
-                .map(c -> new CategoryResponse(c.getId(), c.getName(), c.getGender()))
+                .map(this::toCategoryResponse)
                 .collect(Collectors.toList());
     }
 
@@ -93,9 +115,14 @@ public class ProductAdminController {
         existing.setName(request.getName());
         existing.setGender(request.getGender());
 
+        Integer threshold = thresholdOrNull(request.getLowStockThreshold());
+        boolean thresholdChanged = !Objects.equals(threshold, existing.getLowStockThreshold());
+        existing.setLowStockThreshold(threshold);
+
         Category saved = categoryRepository.save(existing);
+        if (thresholdChanged) lowStock.categoryChanged(id);
 
-        return new CategoryResponse(saved.getId(), saved.getName(), saved.getGender());
+        return toCategoryResponse(saved);
     }
 
 
@@ -127,11 +154,20 @@ public class ProductAdminController {
 
         validateProduct(p, true);
 
+        // striped mode is only switched on through /stock-mode
+        p.setStockStriped(false);
+
+        // the low-stock flag is LowStockService's to set
+        p.setLowStockThreshold(thresholdOrNull(p.getLowStockThreshold()));
+        p.setLowStock(false);
+        p.setLowStockSince(null);
+
         Instant now = Instant.now();
         p.setCreatedAt(now);
         p.setUpdatedAt(now);
 
         Product saved = productRepository.save(p);
+        lowStock.stockChanged(saved.getId());
 
         return ResponseEntity.created(
                 URI.create("/api/admin/catalog/products/" + saved.getId())
@@ -157,22 +193,96 @@ public class ProductAdminController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Category not found");
         }
 
+        Integer stockBefore = existing.getStock();
         if (p.getTitle() != null) existing.setTitle(p.getTitle());
         if (p.getSlug() != null) existing.setSlug(p.getSlug());
         existing.setDescription(p.getDescription());
         existing.setPrice(p.getPrice());
         existing.setDiscountPrice(p.getDiscountPrice());
         existing.setCurrency(p.getCurrency());
-        existing.setStock(p.getStock());
+        if (!existing.isStockStriped()) existing.setStock(p.getStock());
         existing.setStatus(p.getStatus());
         existing.setImages(p.getImages());
         existing.setCategory(p.getCategory());
         existing.setTags(p.getTags());
+        // absent = unchanged, negative = back to the category's threshold
+        if (p.getLowStockThreshold() != null) {
+            existing.setLowStockThreshold(thresholdOrNull(p.getLowStockThreshold()));
+        }
         existing.setUpdatedAt(Instant.now());
 
         validateProduct(existing, false);
 
-        return toProductResponse(productRepository.save(existing));
+        // striped products keep their stock in buckets; spread the new total over them
+        if (existing.isStockStriped() && p.getStock() != null) {
+            if (p.getStock() < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock cannot be negative");
+            }
+            stripedStock.reset(id, p.getStock());
+        }
+
+        // only the edited fields: a full save would undo stock moves, the low-stock
+        // flag and reservation holds written since the read
+        Update update = new Update();
+        setOrUnset(update, "title", existing.getTitle());
+        setOrUnset(update, "slug", existing.getSlug());
+        setOrUnset(update, "description", existing.getDescription());
+        setOrUnset(update, "price", existing.getPrice());
+        setOrUnset(update, "discountPrice", existing.getDiscountPrice());
+        setOrUnset(update, "currency", existing.getCurrency());
+        setOrUnset(update, "status", existing.getStatus());
+        setOrUnset(update, "images", existing.getImages());
+        setOrUnset(update, "category", existing.getCategory());
+        setOrUnset(update, "tags", existing.getTags());
+        if (!existing.isStockStriped() && !Objects.equals(p.getStock(), stockBefore)) {
+            update.set("stock", p.getStock());
+        }
+        if (p.getLowStockThreshold() != null) {
+            setOrUnset(update, "lowStockThreshold", existing.getLowStockThreshold());
+        }
+        update.set("updatedAt", existing.getUpdatedAt());
+
+        Product saved = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(id)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Product.class
+        );
+        if (saved == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+        lowStock.stockChanged(id);
+        return toProductResponse(saved);
+    }
+
+    // a null clears the field, as saving the whole document would have
+    private static void setOrUnset(Update update, String key, Object value) {
+        if (value == null) update.unset(key);
+        else update.set(key, value);
+    }
+
+    /** Switch a product between a single stock counter and striped buckets (hot SKUs). */
+    @PutMapping("/products/{id}/stock-mode")
+    public ProductResponse updateStockMode(
+            @PathVariable String id,
+            @RequestBody StockModeRequest request
+    ) {
+        if (!productRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+
+        if (request.striped()) {
+            int buckets = request.buckets() != null ? request.buckets() : stripedStock.defaultBuckets();
+            if (buckets < 2 || buckets > 64) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Buckets must be between 2 and 64");
+            }
+            stripedStock.enable(id, buckets);
+        } else {
+            stripedStock.disable(id);
+        }
+        lowStock.stockChanged(id);
+
+        return getProductById(id);
     }
 
     @DeleteMapping("/products/{id}")
@@ -182,6 +292,7 @@ public class ProductAdminController {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
         }
         productRepository.deleteById(id);
+        lowStock.productDeleted(id);
     }
 
     /** NEW: get single product by id for edit page */
@@ -236,7 +347,10 @@ public class ProductAdminController {
                 .price(p.getPrice())
                 .discountPrice(p.getDiscountPrice())
                 .currency(p.getCurrency())
-                .stock(p.getStock())
+                .stock(p.isStockStriped() ? stripedStock.total(p.getId()) : p.getStock())
+                .stockStriped(p.isStockStriped())
+                .lowStockThreshold(p.getLowStockThreshold())
+                .lowStock(p.isLowStock())
                 .status(p.getStatus())
                 .images(
                         p.getImages() == null ? List.of()
@@ -253,6 +367,14 @@ public class ProductAdminController {
                 .build();
     }
 
+    private CategoryResponse toCategoryResponse(Category c) {
+        return new CategoryResponse(c.getId(), c.getName(), c.getGender(), c.getLowStockThreshold());
+    }
+
+    private static Integer thresholdOrNull(Integer threshold) {
+        return threshold == null || threshold < 0 ? null : threshold;
+    }
+
     private void validateProduct(Product p, boolean creating) {
         if (creating && (p.getSlug() == null || p.getSlug().isBlank())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Slug required");
@@ -7,6 +7,7 @@ import com.shop.commerce_api.entity.Gender;
 import com.shop.commerce_api.entity.Product;
 import com.shop.commerce_api.repository.CategoryRepository;
 import com.shop.commerce_api.repository.ProductRepository;
+import com.shop.commerce_api.service.StripedStockService;
 import org.springframework.data.domain.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,11 +21,14 @@ public class ProductPublicController {
 
     private final ProductRepository productRepo;
     private final CategoryRepository categoryRepo;
+    private final StripedStockService stripedStock;
 
     public ProductPublicController(ProductRepository productRepo,
-                                   CategoryRepository categoryRepo) {
+                                   CategoryRepository categoryRepo,
+                                   StripedStockService stripedStock) {
         this.productRepo = productRepo;
         this.categoryRepo = categoryRepo;
+        this.stripedStock = stripedStock;
     }
 
     // ----------------------------
@@ -154,7 +158,7 @@ public class ProductPublicController {
                 .price(p.getPrice())
                 .discountPrice(p.getDiscountPrice())
                 .currency(p.getCurrency())
-                .stock(p.getStock())
+                .stock(p.isStockStriped() ? stripedStock.total(p.getId()) : p.getStock())
                 .status(p.getStatus())
                 .images(images)
                 .tags(p.getTags())
@@ -1,6 +1,10 @@
 package com.shop.commerce_api.dto;
 
+import java.time.Instant;
+
 public record AlertDto(
         String level, // "INFO", "WARNING", "ERROR"
-        String message
+        String message,
+        String key,   // stable per condition, e.g. "low-stock:<productId>", for de-duplication
+        Instant since
 ) {}
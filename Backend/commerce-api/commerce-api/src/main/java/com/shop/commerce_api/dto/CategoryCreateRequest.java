@@ -14,4 +14,5 @@ import lombok.NoArgsConstructor;
 public class CategoryCreateRequest {
     private String name;
     private Gender gender;
+    private Integer lowStockThreshold;
 }
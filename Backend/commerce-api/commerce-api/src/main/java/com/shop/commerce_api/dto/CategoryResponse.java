@@ -14,4 +14,9 @@ public class CategoryResponse {
     private String id;
     private String name;
     private Gender gender;
+    private Integer lowStockThreshold;
+
+    public CategoryResponse(String id, String name, Gender gender) {
+        this(id, name, gender, null);
+    }
 }
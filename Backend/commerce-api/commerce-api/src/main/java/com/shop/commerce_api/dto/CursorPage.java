@@ -0,0 +1,9 @@
+package com.shop.commerce_api.dto;
+
+import java.util.List;
+
+/** One page of a keyset-paginated listing; pass {@code nextCursor} back to get the next page. */
+public record CursorPage<T>(
+        List<T> items,
+        String nextCursor
+) {}
@@ -2,18 +2,26 @@ package com.shop.commerce_api.dto;
 
 import com.shop.commerce_api.entity.OrderItem;
 import com.shop.commerce_api.entity.OrderStatus;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.Instant;
 import java.util.List;
 
 @Data
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class OrderResponse {
     private String id;
     private String userId;
 
+    // the account that placed the order (admin listings only)
+    private String customerName;
+    private String customerEmail;
+
     private String fullName;
     private String email;
     private String phone;
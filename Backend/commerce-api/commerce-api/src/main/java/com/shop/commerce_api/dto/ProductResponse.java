@@ -28,6 +28,10 @@ public class ProductResponse {
     private String currency;
 
     private Integer stock;
+    private boolean stockStriped;
+
+    private Integer lowStockThreshold;
+    private boolean lowStock;
 
     private String status;
 
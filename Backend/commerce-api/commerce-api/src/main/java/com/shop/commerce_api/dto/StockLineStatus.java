@@ -0,0 +1,8 @@
+package com.shop.commerce_api.dto;
+
+public record StockLineStatus(
+        String productId,
+        int requested,
+        Integer available, // null when the line was reserved without reading stock back
+        boolean inStock
+) {}
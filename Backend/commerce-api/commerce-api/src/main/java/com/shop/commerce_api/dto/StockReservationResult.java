@@ -0,0 +1,8 @@
+package com.shop.commerce_api.dto;
+
+import java.util.List;
+
+public record StockReservationResult(
+        boolean reserved,
+        List<StockLineStatus> lines
+) {}
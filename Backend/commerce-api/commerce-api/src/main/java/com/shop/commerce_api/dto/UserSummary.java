@@ -0,0 +1,7 @@
+package com.shop.commerce_api.dto;
+
+public record UserSummary(
+        String id,
+        String name,
+        String email
+) {}
@@ -23,6 +23,9 @@ public class Category {
     @NotNull
     private Gender gender;
 
+    // low-stock threshold for products that don't set their own; null = the default
+    private Integer lowStockThreshold;
+
     public Category() {}
 
     public Category(String name, Gender gender){
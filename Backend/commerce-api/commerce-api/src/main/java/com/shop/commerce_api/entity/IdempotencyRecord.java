@@ -0,0 +1,35 @@
+package com.shop.commerce_api.entity;
+
+import com.shop.commerce_api.dto.OrderResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document("idempotency_keys")
+public class IdempotencyRecord {
+
+    // caller scope + ":" + Idempotency-Key header (the _id index makes it unique)
+    @Id
+    private String id;
+
+    // SHA-256 of the request body's canonical JSON, so a key reused for a different order is rejected
+    private String fingerprint;
+
+    /** IN_PROGRESS | ACCEPTED (order queued, not yet written) | COMPLETED */
+    private String status;
+
+    private OrderResponse response;
+
+    @Indexed(expireAfter = "24h")
+    private Instant createdAt;
+}
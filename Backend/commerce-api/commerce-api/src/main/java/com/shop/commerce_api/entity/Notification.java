@@ -2,6 +2,7 @@ package com.shop.commerce_api.entity;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -11,6 +12,8 @@ import java.time.Instant;
 @NoArgsConstructor
 @Builder
 @Document("notifications")
+// a user's notifications newest first, keyset-paged on (createdAt, _id)
+@CompoundIndex(name = "userEmail_createdAt", def = "{'userEmail': 1, 'createdAt': -1, '_id': -1}")
 public class Notification {
 
     @Id
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -17,6 +18,13 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 @Document("orders")
+// newest-first listings and createdAt ranges (dashboard KPIs, sales, admin search),
+// each index ending in (createdAt, _id) so keyset pages need no in-memory sort
+@CompoundIndex(name = "createdAt_id", def = "{'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "email_createdAt", def = "{'email': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "userId_createdAt", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "total_id", def = "{'total': -1, '_id': -1}")
 public class Order {
 
     @Id
@@ -37,6 +45,14 @@ public class Order {
 
     private OrderStatus status;
 
+    // true while the order's items are taken out of product stock
+    private boolean stockReserved;
+
+    // ids of the last few status writes, so a bulk transition can tell which
+    // of its conditional updates applied, and the archiver whether the order
+    // changed after it was copied
+    private List<String> transitions;
+
     @CreatedDate
     private Instant createdAt;
 
@@ -0,0 +1,52 @@
+package com.shop.commerce_api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * An order status change waiting in the outbox; see {@code OrderOutboxService}.
+ * Delivered events are deleted, so the collection only holds the backlog.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document("order_events")
+// the dispatcher takes the oldest READY events; recovery looks for old PREPARED ones
+@CompoundIndex(name = "state_createdAt", def = "{'state': 1, 'createdAt': 1}")
+public class OrderEvent {
+
+    public enum State {
+        PREPARED,  // written before the status change, not yet confirmed
+        READY,     // the status change is stored: deliver
+        FAILED     // gave up after too many attempts, kept for inspection
+    }
+
+    // also the id of the notification it produces, so redelivery can't duplicate it
+    @Id
+    private String id;
+
+    private String orderId;
+    private String userEmail;
+    private OrderStatus from;
+    private OrderStatus to;
+
+    private State state;
+    private int attempts;
+    private String lastError;
+
+    // set while a dispatcher holds the event; an expired lease can be taken again
+    @Indexed(sparse = true)
+    private String claim;
+    private Instant leaseUntil;
+
+    private Instant createdAt;
+}
@@ -1,5 +1,6 @@
 package com.shop.commerce_api.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -7,6 +8,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -17,6 +20,9 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @Document("products")
+// only low-stock products are in this index, so it stays tiny
+@CompoundIndex(name = "low_stock", def = "{'lowStock': 1, 'lowStockSince': -1}",
+        partialFilter = "{'lowStock': true}")
 public class Product {
 
     @Id
@@ -44,6 +50,22 @@ public class Product {
     @Min(0)
     private Integer stock = 0;
 
+    // hot SKUs: stock lives in stock_buckets and this field stays 0
+    private boolean stockStriped;
+
+    // ids of reservations in flight (InventoryService); stale ones are swept
+    @JsonIgnore
+    @Indexed(sparse = true)
+    private List<String> stockHolds;
+
+    // alert when stock drops below this; null = the category's threshold, or the default
+    // (admin updates send a negative value to go back to null)
+    private Integer lowStockThreshold;
+
+    // maintained by LowStockService
+    private boolean lowStock;
+    private Instant lowStockSince;
+
     /** DRAFT | PUBLISHED | ARCHIVED */
     @NotBlank
     private String status = "DRAFT";
@@ -0,0 +1,39 @@
+package com.shop.commerce_api.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Sales of one product on one UTC day, leaving out cancelled orders.
+ * Written only by ProductSalesService's {@code $merge} pipelines, which is
+ * why there is no repository.
+ */
+@Data
+@NoArgsConstructor
+@Document("product_sales")
+// window reads: day range, then grouped by product
+@CompoundIndex(name = "day_product", def = "{'day': 1, 'productId': 1}")
+public class ProductSales {
+
+    // "<productId>|<yyyy-MM-dd>"
+    @Id
+    private String id;
+
+    private String productId;
+
+    // UTC date, yyyy-MM-dd
+    private String day;
+
+    // title as last sold
+    private String title;
+
+    private long units;
+    private double revenue;
+    private long orders;
+
+    // set by rebuilds, so a rebuild can drop the rows it didn't rewrite
+    private String rebuild;
+}
@@ -0,0 +1,33 @@
+package com.shop.commerce_api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document("revoked_tokens")
+public class RevokedToken {
+
+    // the token's jti claim
+    @Id
+    private String id;
+
+    private String userId;
+
+    // polled by every node to pick up revocations made elsewhere
+    @Indexed
+    private Instant revokedAt;
+
+    // Mongo drops the entry once the token would have expired anyway
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -0,0 +1,41 @@
+package com.shop.commerce_api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sales of one UTC day, kept up to date as orders are placed and change
+ * status. Figures are split by UTC hour ("00".."23") and then by order
+ * status, so ranges can be re-cut in any time zone and "revenue" can
+ * exclude cancelled orders at read time.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("sales_daily")
+public class SalesDaily {
+
+    // UTC date, yyyy-MM-dd (sorts and ranges like the date itself)
+    @Id
+    private String id;
+
+    private Map<String, Map<String, Figures>> hours = new HashMap<>();
+
+    // bumped by every incremental write, so a rebuild only replaces the day it read
+    private long version;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Figures {
+        private double revenue;
+        private long orders;
+        private long units;
+    }
+}
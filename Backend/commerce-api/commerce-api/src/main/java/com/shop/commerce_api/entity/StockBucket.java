@@ -0,0 +1,34 @@
+package com.shop.commerce_api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * One slice of a striped product's stock. The product's available stock is
+ * the sum of its buckets; see {@code StripedStockService}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("stock_buckets")
+public class StockBucket {
+
+    // productId + ":" + bucket
+    @Id
+    private String id;
+
+    @Indexed
+    private String productId;
+
+    private int bucket;
+
+    private int stock;
+
+    public static String idOf(String productId, int bucket) {
+        return productId + ":" + bucket;
+    }
+}
@@ -4,22 +4,30 @@ package com.shop.commerce_api.entity;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 @Data
 @Document("users")
+// admin listing filtered by role, paged by email
+@CompoundIndex(name = "roles_email", def = "{'roles.name': 1, 'email': 1}")
 public class User {
 
     @Id
     private String id;
     private String name;
 
+    // lower-cased copy of name for indexed prefix search; kept in step by setName
+    @Indexed
+    private String nameLower;
+
     @Indexed(unique = true)
     private String email;
     private String password;
@@ -27,6 +35,17 @@ public class User {
 
     private Set<Role> roles = new HashSet<>();
 
+    // bumped on role changes; tokens carrying an older version are rejected
+    private long tokenVersion;
+
+    @Indexed
+    private Instant tokenVersionChangedAt;
+
     @CreatedDate
     private Instant createdAt;
+
+    public void setName(String name) {
+        this.name = name;
+        this.nameLower = name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
 }
@@ -3,9 +3,6 @@ package com.shop.commerce_api.repository;
 import com.shop.commerce_api.entity.Notification;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-import java.util.List;
-
+// listing, marking read and clearing live in NotificationService (one query or write each)
 public interface NotificationRepository extends MongoRepository<Notification, String> {
-    List<Notification> findByUserEmailOrderByCreatedAtDesc(String email);
-    void deleteByUserEmail(String email);
 }
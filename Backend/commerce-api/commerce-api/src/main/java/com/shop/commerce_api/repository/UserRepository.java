@@ -1,5 +1,6 @@
 package com.shop.commerce_api.repository;
 
+import com.shop.commerce_api.entity.ERole;
 import com.shop.commerce_api.entity.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -11,6 +12,7 @@ import java.util.Optional;
 public interface UserRepository extends MongoRepository<User, String> {
 
     long countByCreatedAtAfter(Instant since);
+    long countByRolesName(ERole name);
     Optional<User> findByEmail(String email);
         boolean existsByEmail(String email);
 }
@@ -0,0 +1,113 @@
+package com.shop.commerce_api.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token-bucket admission control for sign-in and sign-up, per client IP and
+ * per email. Buckets are striped over fixed arrays (keys hash into a slot), so
+ * there is no per-key map to grow under a credential-stuffing burst, and each
+ * acquire is a single CAS on one {@code long}.
+ */
+@Component
+public class AuthRateLimiter {
+
+    private final Buckets byIp;
+    private final Buckets byEmail;
+
+    private final AtomicLong rejectedByIp = new AtomicLong();
+    private final AtomicLong rejectedByEmail = new AtomicLong();
+
+    public AuthRateLimiter(@Value("${app.auth.rate-limit.stripes:4096}") int stripes,
+                           @Value("${app.auth.rate-limit.ip.capacity:30}") int ipCapacity,
+                           @Value("${app.auth.rate-limit.ip.per-minute:30}") int ipPerMinute,
+                           @Value("${app.auth.rate-limit.email.capacity:5}") int emailCapacity,
+                           @Value("${app.auth.rate-limit.email.per-minute:5}") int emailPerMinute) {
+        this.byIp = new Buckets(stripes, ipCapacity, ipPerMinute);
+        this.byEmail = new Buckets(stripes, emailCapacity, emailPerMinute);
+    }
+
+    /** True if the request may go ahead; takes one token from both buckets. */
+    public boolean tryAcquire(String ip, String email) {
+        if (!byIp.tryAcquire(ip == null ? "" : ip)) {
+            rejectedByIp.incrementAndGet();
+            return false;
+        }
+        if (!byEmail.tryAcquire(email == null ? "" : email.trim().toLowerCase(Locale.ROOT))) {
+            rejectedByEmail.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("rejectedByIp", rejectedByIp.get());
+        res.put("rejectedByEmail", rejectedByEmail.get());
+        return res;
+    }
+
+    /**
+     * One bucket per slot. A slot packs the last refill time (ms since start,
+     * upper 48 bits) and the token count in 1/256ths (lower 16 bits).
+     */
+    static final class Buckets {
+
+        private static final int UNIT = 256;            // one token
+        private static final long TOKENS_MASK = 0xFFFFL;
+
+        private final AtomicLongArray slots;
+        private final int mask;
+        private final long capacityUnits;
+        private final double unitsPerMs;
+        private final long start = System.currentTimeMillis();
+
+        Buckets(int stripes, int capacity, int perMinute) {
+            int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+            if (capacity * UNIT > TOKENS_MASK) {
+                throw new IllegalArgumentException("Bucket capacity must be below 256");
+            }
+            this.slots = new AtomicLongArray(size);
+            this.mask = size - 1;
+            this.capacityUnits = (long) capacity * UNIT;
+            this.unitsPerMs = perMinute * (double) UNIT / 60_000d;
+
+            long full = capacityUnits; // last refill 0, bucket full
+            for (int i = 0; i < size; i++) slots.set(i, full);
+        }
+
+        boolean tryAcquire(String key) {
+            int i = spread(key.hashCode()) & mask;
+            while (true) {
+                long old = slots.get(i);
+                long now = System.currentTimeMillis() - start;
+                long last = old >>> 16;
+                long tokens = old & TOKENS_MASK;
+
+                long refill = (long) ((now - last) * unitsPerMs);
+                if (refill > 0) {
+                    tokens = Math.min(capacityUnits, tokens + refill);
+                    last = now;
+                }
+                if (tokens < UNIT) {
+                    return false;
+                }
+
+                long updated = (last << 16) | (tokens - UNIT);
+                if (slots.compareAndSet(i, old, updated)) {
+                    return true;
+                }
+            }
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
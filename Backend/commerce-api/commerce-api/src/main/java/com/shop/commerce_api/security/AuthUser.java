@@ -0,0 +1,67 @@
+package com.shop.commerce_api.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The authenticated principal. Built straight from verified JWT claims, so
+ * controllers get the user id without looking the user up again.
+ */
+public class AuthUser implements UserDetails {
+
+    private final String id;
+    private final String email;
+    private final String name;     // not in the token, only set when loaded from Mongo
+    private final String password; // only set when loaded from Mongo (sign-in)
+    private final Set<? extends GrantedAuthority> authorities;
+    private final long tokenVersion;
+
+    public AuthUser(String id, String email, String name, String password,
+                    Set<? extends GrantedAuthority> authorities, long tokenVersion) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.password = password;
+        this.authorities = authorities;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Role names without the ROLE_ prefix (CUSTOMER, ADMIN). */
+    public Set<String> getRoleNames() {
+        return authorities.stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(a -> a.startsWith("ROLE_") ? a.substring(5) : a)
+                .collect(Collectors.toSet());
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
@@ -1,19 +1,24 @@
 package com.shop.commerce_api.security;
 
-import com.shop.commerce_api.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter { // <-- implements jakarta.servlet.Filter via OncePerRequestFilter
@@ -22,7 +27,13 @@ public class JwtFilter extends OncePerRequestFilter { // <-- implements jakarta.
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private TokenVersionRegistry tokenVersions;
+
+    @Autowired
+    private TokenRevocationList revocations;
 
     @Override
     protected void doFilterInternal(
@@ -32,20 +43,44 @@ public class JwtFilter extends OncePerRequestFilter { // <-- implements jakarta.
     ) throws ServletException, IOException {
 
         String jwt = resolveToken(request);
-        if (jwt != null && jwtUtils.validateJwt(jwt)) {
-            String email = jwtUtils.getEmailFromJwt(jwt);
-            var userDetails = userDetailsService.loadUserByUsername(email);
+        Claims claims = jwt != null ? jwtUtils.parseJwt(jwt) : null;
+        if (claims != null && !revocations.isRevoked(claims.getId())) {
+            AuthUser user = toAuthUser(claims);
 
-            var auth = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities());
-            auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            if (user != null) {
+                var auth = new UsernamePasswordAuthenticationToken(
+                        user, null, user.getAuthorities());
+                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-            SecurityContextHolder.getContext().setAuthentication(auth);
+                SecurityContextHolder.getContext().setAuthentication(auth);
+            }
         }
 
         filterChain.doFilter(request, response);
     }
 
+    // Everything comes from the verified claims; only tokens issued before
+    // claims were added (no uid) still need the user from Mongo.
+    private AuthUser toAuthUser(Claims claims) {
+        String userId = claims.get(JwtUtils.CLAIM_USER_ID, String.class);
+        if (userId == null) {
+            return (AuthUser) userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        Number version = claims.get(JwtUtils.CLAIM_VERSION, Number.class);
+        long tokenVersion = version != null ? version.longValue() : 0L;
+        if (!tokenVersions.isCurrent(userId, tokenVersion)) {
+            return null; // roles changed since this token was issued
+        }
+
+        List<?> roles = claims.get(JwtUtils.CLAIM_ROLES, List.class);
+        Set<SimpleGrantedAuthority> authorities = roles == null ? Set.of() : roles.stream()
+                .map(r -> new SimpleGrantedAuthority("ROLE_" + r))
+                .collect(Collectors.toSet());
+
+        return new AuthUser(userId, claims.getSubject(), null, null, authorities, tokenVersion);
+    }
+
     @Override
     protected boolean shouldNotFilter(jakarta.servlet.http.HttpServletRequest request) {
         String p = request.getServletPath();
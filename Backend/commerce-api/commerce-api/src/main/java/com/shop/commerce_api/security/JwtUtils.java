@@ -1,6 +1,8 @@
 package com.shop.commerce_api.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -13,18 +15,35 @@ import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Component
 public class JwtUtils {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_VERSION = "ver";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expirationMs}")
     private int jwtExpirationMs;
 
+    @Value("${app.jwt.cache.max-size:50000}")
+    private int cacheMaxSize;
+
+    @Value("${app.jwt.cache.ttl-ms:300000}")
+    private long cacheTtlMs;
+
     private Key key;
 
+    // immutable and thread-safe: build once instead of per call
+    private JwtParser parser;
+
+    private VerifiedTokenCache verified;
+
     @PostConstruct
     public void init() {
         byte[] keyBytes;
@@ -41,35 +60,44 @@ public class JwtUtils {
             throw new IllegalStateException("JWT secret too short for HS512 (need >= 64 bytes)");
         }
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verified = new VerifiedTokenCache(cacheMaxSize, cacheTtlMs);
     }
 
-    public String generateJwt(String email) {
+    /** Token carrying the user id, roles and token version, so requests need no user lookup. */
+    public String generateJwt(AuthUser user) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + jwtExpirationMs);
 
         return Jwts.builder()
-                .setSubject(email)
+                .setId(UUID.randomUUID().toString())   // jti, so a single token can be revoked
+                .setSubject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLES, List.copyOf(user.getRoleNames()))
+                .claim(CLAIM_VERSION, user.getTokenVersion())
                 .setIssuedAt(now)
                 .setExpiration(exp)
                 .signWith(key, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public String getEmailFromJwt(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
+    /**
+     * Verifies the token once and returns its claims, or null when the token
+     * is invalid or expired. Recently verified tokens come from the cache.
+     */
+    public Claims parseJwt(String token) {
+        String digest = verified.digest(token);
+        Claims claims = verified.get(digest);
+        if (claims != null) {
+            return claims;
+        }
 
-    public boolean validateJwt(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
+        verified.put(digest, claims);
+        return claims;
     }
 }
@@ -0,0 +1,112 @@
+package com.shop.commerce_api.security;
+
+import com.shop.commerce_api.entity.RevokedToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token ids (jti), stored in {@code revoked_tokens} until the token
+ * would have expired and mirrored in memory, so {@link JwtFilter} never reads
+ * Mongo per request.
+ * <p>
+ * A bloom filter answers the common case (token not revoked) without touching
+ * the exact set; only bloom hits are confirmed against it. Revocations made on
+ * other nodes are picked up by polling on the indexed {@code revokedAt}.
+ * Expired ids are dropped from the exact set on each poll, and the filter is
+ * rebuilt from it, since bloom filters can't remove keys.
+ */
+@Component
+public class TokenRevocationList {
+
+    // allow for clock differences between nodes when polling
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(5);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final MongoTemplate mongoTemplate;
+    private final int expectedRevocations;
+
+    // jti -> expiry (epoch ms)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private int filterCapacity;
+    private volatile Instant lastPoll = Instant.EPOCH;
+
+    public TokenRevocationList(MongoTemplate mongoTemplate,
+                               @Value("${app.jwt.revocation.expected:100000}") int expectedRevocations) {
+        this.mongoTemplate = mongoTemplate;
+        this.expectedRevocations = expectedRevocations;
+        this.filterCapacity = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && filter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    /** Revokes a single token until its own expiry. */
+    public void revoke(String jti, String userId, Instant expiresAt) {
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return; // nothing to revoke, or already expired
+        }
+        mongoTemplate.save(RevokedToken.builder()
+                .id(jti)
+                .userId(userId)
+                .revokedAt(Instant.now())
+                .expiresAt(expiresAt)
+                .build());
+        add(jti, expiresAt.toEpochMilli());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("revoked", revoked.size());
+        res.put("lastPoll", lastPoll);
+        return res;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.jwt.revocation.refresh-ms:15000}")
+    public void refresh() {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("revokedAt").gt(lastPoll.minus(POLL_OVERLAP))
+                .and("expiresAt").gt(now));
+        query.fields().include("expiresAt");
+
+        for (RevokedToken t : mongoTemplate.find(query, RevokedToken.class)) {
+            add(t.getId(), t.getExpiresAt().toEpochMilli());
+        }
+        lastPoll = now;
+
+        long nowMs = now.toEpochMilli();
+        if (revoked.values().removeIf(exp -> exp <= nowMs)) {
+            rebuild();
+        }
+    }
+
+    // set first, then filter: a reader that hits the filter always finds the id
+    private synchronized void add(String jti, long expiresAt) {
+        revoked.put(jti, expiresAt);
+        if (revoked.size() > filterCapacity) {
+            rebuild();
+        } else {
+            filter.put(jti);
+        }
+    }
+
+    private synchronized void rebuild() {
+        // keep the false-positive rate down as the set grows
+        filterCapacity = Math.max(expectedRevocations, revoked.size() * 2);
+        BloomFilter fresh = new BloomFilter(filterCapacity, FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(fresh::put);
+        filter = fresh;
+    }
+}
@@ -0,0 +1,63 @@
+package com.shop.commerce_api.security;
+
+import com.shop.commerce_api.entity.User;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current token version of every user whose roles changed, so {@link JwtFilter}
+ * can reject stale tokens without reading the user.
+ * <p>
+ * Changes made on this node are recorded immediately; changes made on other
+ * nodes are picked up by polling users whose {@code tokenVersionChangedAt}
+ * moved since the last poll (indexed, and usually an empty result).
+ */
+@Component
+public class TokenVersionRegistry {
+
+    // allow for clock differences between nodes when polling
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(5);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private volatile Instant lastPoll = Instant.EPOCH;
+
+    public TokenVersionRegistry(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public boolean isCurrent(String userId, long tokenVersion) {
+        Long current = versions.get(userId);
+        return current == null || tokenVersion >= current;
+    }
+
+    /** Invalidates the user's existing tokens; call before saving the user. */
+    public void bump(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        user.setTokenVersionChangedAt(Instant.now());
+        if (user.getId() != null) {
+            versions.merge(user.getId(), user.getTokenVersion(), Math::max);
+        }
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.jwt.version-refresh-ms:15000}")
+    public void refresh() {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("tokenVersionChangedAt").gt(lastPoll.minus(POLL_OVERLAP)));
+        query.fields().include("tokenVersion");
+
+        for (User u : mongoTemplate.find(query, User.class)) {
+            versions.merge(u.getId(), u.getTokenVersion(), Math::max);
+        }
+        lastPoll = now;
+    }
+}
@@ -0,0 +1,83 @@
+package com.shop.commerce_api.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recently verified tokens, keyed by the SHA-256 digest of the token (not the
+ * token itself), mapped to their claims. A hit skips signature verification
+ * and JSON parsing; entries never outlive the token's own expiry.
+ */
+class VerifiedTokenCache {
+
+    private record Entry(Claims claims, long expiresAt) {}
+
+    private final int maxSize;
+    private final long ttlMs;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final MessageDigest sha256;
+
+    VerifiedTokenCache(int maxSize, long ttlMs) {
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    String digest(String token) {
+        try {
+            // MessageDigest isn't thread-safe; cloning the prototype is cheaper than getInstance
+            MessageDigest md = (MessageDigest) sha256.clone();
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Claims get(String digest) {
+        Entry e = entries.get(digest);
+        if (e == null) return null;
+        if (e.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(digest, e);
+            return null;
+        }
+        return e.claims();
+    }
+
+    void put(String digest, Claims claims) {
+        if (maxSize <= 0) return;
+
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttlMs;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        if (expiresAt <= now) return;
+
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(digest, new Entry(claims, expiresAt));
+    }
+
+    // drop expired entries; if that isn't enough, drop an arbitrary quarter
+    private void evict(long now) {
+        entries.values().removeIf(e -> e.expiresAt() <= now);
+        int excess = entries.size() - (maxSize * 3 / 4);
+        Iterator<String> it = entries.keySet().iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
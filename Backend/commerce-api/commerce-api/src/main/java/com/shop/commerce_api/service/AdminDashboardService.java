@@ -2,12 +2,14 @@ package com.shop.commerce_api.service;
 
 import com.shop.commerce_api.dto.AlertDto;
 import com.shop.commerce_api.dto.RecentOrderDto;
+import com.shop.commerce_api.dto.UserSummary;
 import com.shop.commerce_api.entity.Order;
 import com.shop.commerce_api.entity.OrderStatus;
-import com.shop.commerce_api.entity.User;
 import com.shop.commerce_api.repository.OrderRepository;
-import com.shop.commerce_api.repository.ProductRepository;
-import com.shop.commerce_api.repository.UserRepository;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.time.*;
@@ -18,59 +20,49 @@ import java.util.stream.Collectors;
 public class AdminDashboardService {
 
     private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
-    private final ProductRepository productRepository;
+    private final UserSummaryResolver userSummaries;
+    private final MongoTemplate mongoTemplate;
+    private final SalesRollupService salesRollups;
+    private final RealtimeMetricsService realtimeMetrics;
+    private final LowStockService lowStock;
+    private final OrderArchiveService orderArchive;
 
     public AdminDashboardService(
             OrderRepository orderRepository,
-            UserRepository userRepository,
-            ProductRepository productRepository
+            UserSummaryResolver userSummaries,
+            MongoTemplate mongoTemplate,
+            SalesRollupService salesRollups,
+            RealtimeMetricsService realtimeMetrics,
+            LowStockService lowStock,
+            OrderArchiveService orderArchive
     ) {
         this.orderRepository = orderRepository;
-        this.userRepository = userRepository;
-        this.productRepository = productRepository;
+        this.userSummaries = userSummaries;
+        this.mongoTemplate = mongoTemplate;
+        this.salesRollups = salesRollups;
+        this.realtimeMetrics = realtimeMetrics;
+        this.lowStock = lowStock;
+        this.orderArchive = orderArchive;
     }
 
     // ---------- 1) KPIs ----------
     public Map<String, Object> getKpis() {
-        Instant now = Instant.now();
-
         // Today range in UTC
         LocalDate today = LocalDate.now(ZoneOffset.UTC);
         Instant startOfDay = today.atStartOfDay().toInstant(ZoneOffset.UTC);
         Instant endOfDay = today.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
 
-        // 🔹 All non-CANCELLED orders created today
-        List<Order> todayNonCancelled = orderRepository
-                .findByCreatedAtBetweenAndStatusNot(startOfDay, endOfDay, OrderStatus.CANCELLED);
-
-        double revenueToday = todayNonCancelled.stream()
-                .mapToDouble(Order::getTotal)
-                .sum();
+        // Computed by Mongo; only the numbers come back
+        double revenueToday = revenueBetween(startOfDay, endOfDay);
 
-        long totalOrders = orderRepository.count(); // all orders in DB
+        // collection metadata, no scan; archived orders still count
+        long totalOrders = mongoTemplate.estimatedCount(Order.class) + orderArchive.archivedCount();
 
-        // 🔹 Active users = unique customers with non-CANCELLED orders in last 30 minutes
-        Instant last30min = now.minus(Duration.ofMinutes(30));
-        List<Order> last30Orders = orderRepository
-                .findByCreatedAtBetweenAndStatusNot(last30min, now, OrderStatus.CANCELLED);
-
-        long activeUsers = last30Orders.stream()
-                .map(o -> {
-                    if (o.getUserId() != null) {
-                        return o.getUserId();         // registered user
-                    }
-                    return o.getEmail();              // fallback: guest by email
-                })
-                .filter(Objects::nonNull)
-                .distinct()
-                .count();
+        // 🔹 Active users = unique users who ordered, used their cart or signed in, last 30 minutes
+        long activeUsers = realtimeMetrics.uniqueUsers(Duration.ofMinutes(30));
 
-        // Low-stock items
-        int lowStockThreshold = 5;
-        long lowStockCount = productRepository.findAll().stream()
-                .filter(p -> p.getStock() != null && p.getStock() < lowStockThreshold)
-                .count();
+        // Low-stock items, tracked as stock moves
+        long lowStockCount = lowStock.count();
 
         Map<String, Object> res = new HashMap<>();
         res.put("revenueToday", revenueToday);
@@ -83,32 +75,20 @@ public class AdminDashboardService {
 
     // ---------- 2) Sales last 7 days ----------
     public Map<String, Object> getWeeklySales() {
-        ZoneId zone = ZoneOffset.UTC;
-        LocalDate today = LocalDate.now(zone);
-
-        List<String> labels = new ArrayList<>();
-        List<Double> values = new ArrayList<>();
-
-        for (int i = 6; i >= 0; i--) {
-            LocalDate day = today.minusDays(i);
-            Instant start = day.atStartOfDay().toInstant(ZoneOffset.UTC);
-            Instant end = day.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
-
-            // 🔹 All non-CANCELLED orders that day
-            List<Order> ordersDay = orderRepository
-                    .findByCreatedAtBetweenAndStatusNot(start, end, OrderStatus.CANCELLED);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = today.minusDays(6);
 
-            double sum = ordersDay.stream()
-                    .mapToDouble(Order::getTotal)
-                    .sum();
+        // read from the daily rollups, relabelled MON, TUE... for the chart
+        Map<String, Object> series = salesRollups.series(from, today, SalesRollupService.Granularity.DAY, ZoneOffset.UTC);
 
-            labels.add(day.getDayOfWeek().name().substring(0, 3)); // MON, TUE...
-            values.add(sum);
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            labels.add(from.plusDays(i).getDayOfWeek().name().substring(0, 3));
         }
 
         Map<String, Object> res = new HashMap<>();
         res.put("labels", labels);
-        res.put("values", values);
+        res.put("values", series.get("values"));
         return res;
     }
 
@@ -116,21 +96,21 @@ public class AdminDashboardService {
     public List<RecentOrderDto> getRecentOrders() {
         List<Order> orders = orderRepository.findTop10ByOrderByCreatedAtDesc();
 
-        // load users once into a map
-        Map<String, User> userMap = userRepository.findAll().stream()
-                .collect(Collectors.toMap(User::getId, u -> u));
+        // only the users these orders belong to, in one query
+        Map<String, UserSummary> users = userSummaries.resolve(
+                orders.stream().map(Order::getUserId).toList());
 
         return orders.stream()
                 .map(o -> {
-                    User u = userMap.get(o.getUserId());
+                    UserSummary u = users.get(o.getUserId());
 
                     // Prefer registered username/email; fall back to order data if needed
-                    String name = (u != null && u.getName() != null)
-                            ? u.getName()
+                    String name = (u != null && u.name() != null)
+                            ? u.name()
                             : (o.getFullName() != null ? o.getFullName() : "Unknown");
 
-                    String email = (u != null && u.getEmail() != null)
-                            ? u.getEmail()
+                    String email = (u != null && u.email() != null)
+                            ? u.email()
                             : (o.getEmail() != null ? o.getEmail() : "");
 
                     return new RecentOrderDto(
@@ -149,14 +129,32 @@ public class AdminDashboardService {
     public List<AlertDto> getAlerts() {
         List<AlertDto> alerts = new ArrayList<>();
 
-        // Low stock alerts
-        int lowStockThreshold = 5;
-        productRepository.findAll().stream()
-                .filter(p -> p.getStock() != null && p.getStock() < lowStockThreshold)
-                .forEach(p -> alerts.add(
-                        new AlertDto("WARNING", "Stock low for \"" + p.getTitle() + "\"")
-                ));
+        // Low stock alerts, most recent first
+        lowStock.entries()
+                .forEach(e -> alerts.add(new AlertDto(
+                        "WARNING",
+                        "Stock low for \"" + e.title() + "\" (" + e.stock() + " left, alert below " + e.threshold() + ")",
+                        "low-stock:" + e.productId(),
+                        e.since()
+                )));
 
         return alerts;
     }
+
+    // ---------- aggregations ----------
+
+    // createdAt range on the (createdAt, _id) index, status checked on the fetched orders
+    private static Criteria nonCancelledBetween(Instant start, Instant end) {
+        return Criteria.where("createdAt").gte(start).lt(end)
+                .and("status").ne(OrderStatus.CANCELLED);
+    }
+
+    private double revenueBetween(Instant start, Instant end) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(nonCancelledBetween(start, end)),
+                Aggregation.group().sum("total").as("revenue")
+        );
+        Document res = mongoTemplate.aggregate(agg, Order.class, Document.class).getUniqueMappedResult();
+        return res == null ? 0d : ((Number) res.get("revenue")).doubleValue();
+    }
 }
@@ -0,0 +1,81 @@
+package com.shop.commerce_api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches {@link UserDetailsServiceImpl} lookups by normalized email, bounded
+ * in size and age. Entries are evicted when a user is saved (see
+ * {@link UserCacheEvictionListener}) and when an admin changes roles, so
+ * permission changes apply on the next request on this node.
+ */
+@Service
+@Primary
+public class CachingUserDetailsService implements UserDetailsService {
+
+    private record Entry(UserDetails user, long expiresAt) {}
+
+    private final UserDetailsServiceImpl delegate;
+    private final int maxSize;
+    private final long ttlMs;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public CachingUserDetailsService(UserDetailsServiceImpl delegate,
+                                     @Value("${app.auth.user-cache.max-size:100000}") int maxSize,
+                                     @Value("${app.auth.user-cache.ttl-ms:300000}") long ttlMs) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String emailRaw) throws UsernameNotFoundException {
+        String email = norm(emailRaw);
+        long now = System.currentTimeMillis();
+
+        Entry e = cache.get(email);
+        if (e != null && e.expiresAt() > now) {
+            return e.user();
+        }
+
+        // misses (including unknown emails) always go to Mongo
+        UserDetails user = delegate.loadUserByUsername(email);
+        if (cache.size() >= maxSize) {
+            evictSome(now);
+        }
+        cache.put(email, new Entry(user, now + ttlMs));
+        return user;
+    }
+
+    public void evict(String email) {
+        cache.remove(norm(email));
+    }
+
+    public void evictAll() {
+        cache.clear();
+    }
+
+    // drop expired entries; if that isn't enough, drop an arbitrary quarter
+    private void evictSome(long now) {
+        cache.values().removeIf(e -> e.expiresAt() <= now);
+        int excess = cache.size() - (maxSize * 3 / 4);
+        Iterator<String> it = cache.keySet().iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String norm(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,133 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.dto.RecentOrderDto;
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live admin dashboard over SSE. A new subscriber gets one snapshot (KPIs,
+ * weekly sales, recent orders, alerts); after that, everyone receives the
+ * same deltas: orders as they are written, status changes, and KPI, sales or
+ * alert updates when the shared periodic recompute sees a change. The
+ * dashboard is computed once per interval however many admins are watching,
+ * and not at all when nobody is.
+ * <p>
+ * New orders come from this node only and status changes from whichever
+ * node dispatches the outbox; the KPIs, sales and alerts come from Mongo and
+ * so cover every node.
+ */
+@Service
+public class DashboardStreamService implements OrderEventSink {
+
+    private static final String CHANNEL = "dashboard";
+
+    private final AdminDashboardService dashboard;
+    private final SseHub<String> hub;
+    private final long snapshotTtlMs;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantLock computeLock = new ReentrantLock();
+
+    private volatile Map<String, Object> snapshot;
+    private volatile long snapshotAt;
+
+    public DashboardStreamService(AdminDashboardService dashboard,
+                                  @Value("${app.dashboard.stream.buffer:256}") int bufferSize,
+                                  @Value("${app.dashboard.stream.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${app.dashboard.stream.refresh-ms:5000}") long refreshMs) {
+        this.dashboard = dashboard;
+        this.hub = new SseHub<>("dashboard", bufferSize, timeoutMs);
+        this.snapshotTtlMs = refreshMs;
+    }
+
+    public SseEmitter subscribe() {
+        return hub.subscribe(CHANNEL, List.of(event("snapshot", snapshot())));
+    }
+
+    public Map<String, Object> stats() {
+        return hub.stats();
+    }
+
+    // ---------- deltas ----------
+
+    public void ordersPlaced(List<Order> orders) {
+        if (!hub.hasSubscribers()) return;
+        for (Order o : orders) {
+            hub.broadcast(event("order.created", new RecentOrderDto(
+                    o.getId(), o.getFullName(), o.getEmail(), o.getTotal(), o.getStatus(), o.getCreatedAt())));
+        }
+    }
+
+    // status changes come through the outbox; a redelivered one just repeats the same transition
+    @Override
+    public void deliver(List<OrderEvent> events) {
+        if (!hub.hasSubscribers()) return;
+        for (OrderEvent e : events) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("id", e.getOrderId());
+            data.put("from", e.getFrom());
+            data.put("to", e.getTo());
+            hub.broadcast(event("order.status", data));
+        }
+    }
+
+    // one computation for all subscribers; only what changed goes out
+    @Scheduled(fixedDelayString = "${app.dashboard.stream.refresh-ms:5000}")
+    public void refresh() {
+        if (!hub.hasSubscribers()) return;
+
+        Map<String, Object> previous = snapshot;
+        Map<String, Object> current = compute(previous);
+        if (previous == null) return;
+
+        for (String part : List.of("kpis", "sales", "alerts")) {
+            if (!Objects.equals(previous.get(part), current.get(part))) {
+                hub.broadcast(event(part, current.get(part)));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        hub.heartbeat();
+    }
+
+    private Map<String, Object> snapshot() {
+        Map<String, Object> s = snapshot;
+        if (s == null || System.currentTimeMillis() - snapshotAt > snapshotTtlMs) {
+            s = compute(s);
+        }
+        return s;
+    }
+
+    // a lock rather than synchronized: the queries would pin a virtual thread's carrier
+    private Map<String, Object> compute(Map<String, Object> previous) {
+        computeLock.lock();
+        try {
+            if (snapshot != previous) return snapshot; // someone else just did it
+
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("kpis", dashboard.getKpis());
+            s.put("sales", dashboard.getWeeklySales());
+            s.put("recentOrders", dashboard.getRecentOrders());
+            s.put("alerts", dashboard.getAlerts());
+            snapshot = s;
+            snapshotAt = System.currentTimeMillis();
+            return s;
+        } finally {
+            computeLock.unlock();
+        }
+    }
+
+    private SseHub.Event event(String name, Object data) {
+        return new SseHub.Event(Long.toString(sequence.incrementAndGet()), name, data);
+    }
+}
@@ -0,0 +1,67 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.util.Hashing;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * HyperLogLog distinct counter: 2^precision registers, about
+ * 1.04 / sqrt(2^precision) relative error whatever the number of keys.
+ * {@link #add} is lock-free (one CAS on one register); sketches of the same
+ * precision can be merged to count the union.
+ */
+class HyperLogLog {
+
+    private final int precision;
+    private final AtomicIntegerArray registers;
+
+    HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new AtomicIntegerArray(1 << precision);
+    }
+
+    void add(String key) {
+        long h = Hashing.hash64(key);
+        int idx = (int) (h >>> (64 - precision));
+        // leading zeros of the remaining bits, +1; the guard bit caps it
+        int rank = Long.numberOfLeadingZeros((h << precision) | (1L << (precision - 1))) + 1;
+
+        int old;
+        while ((old = registers.get(idx)) < rank) {
+            if (registers.compareAndSet(idx, old, rank)) break;
+        }
+    }
+
+    /** Folds this sketch into {@code into} (register-wise max). */
+    void mergeInto(int[] into) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] = Math.max(into[i], registers.get(i));
+        }
+    }
+
+    long estimate() {
+        int[] regs = new int[registers.length()];
+        mergeInto(regs);
+        return estimate(regs);
+    }
+
+    static long estimate(int[] regs) {
+        int m = regs.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int r : regs) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double e = alpha * m * m / sum;
+
+        // small cardinalities: linear counting is far more accurate
+        if (e <= 2.5 * m && zeros > 0) {
+            e = m * Math.log((double) m / zeros);
+        }
+        return Math.round(e);
+    }
+}
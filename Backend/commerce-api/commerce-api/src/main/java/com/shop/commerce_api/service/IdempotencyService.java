@@ -0,0 +1,324 @@
+package com.shop.commerce_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.shop.commerce_api.dto.OrderResponse;
+import com.shop.commerce_api.entity.IdempotencyRecord;
+import com.shop.commerce_api.entity.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key handling for order placement.
+ * <p>
+ * The first request for a key claims it with an IN_PROGRESS record in
+ * {@code idempotency_keys} (unique by _id, expired by a TTL index) and stores
+ * the {@link OrderResponse} once the order exists. Retries get the stored
+ * response back without placing the order again. On this node, concurrent
+ * duplicates don't even reach Mongo: they wait on the first execution, and
+ * recently completed keys are answered from a small in-memory cache.
+ * <p>
+ * An order still queued when the request stops waiting (202) is kept as
+ * ACCEPTED and settled by the intake writer: COMPLETED once it is written,
+ * released if the write fails. An order whose write outcome is unknown is
+ * answered 202 as well and never released: retries get the 202 until the
+ * order shows up (200) or the lease runs out without it (a fresh attempt).
+ */
+@Service
+public class IdempotencyService {
+
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String ACCEPTED = "ACCEPTED";
+    private static final String COMPLETED = "COMPLETED";
+
+    // sorted properties and map keys, so equal requests always serialize the same way
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .findAndAddModules()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final MongoTemplate mongoTemplate;
+    private final OrderIntakeService orderIntake;
+    private final Duration lease;
+    private final Duration waitTimeout;
+    private final CompletedCache completed;
+
+    // settles keys of orders answered 202 once the intake writer is done with them
+    private static final Executor SETTLER = task -> Thread.ofVirtual().name("idempotency-settle").start(task);
+
+    // key -> the execution currently running for it on this node
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(MongoTemplate mongoTemplate,
+                              OrderIntakeService orderIntake,
+                              @Value("${app.idempotency.lease-ms:120000}") long leaseMs,
+                              @Value("${app.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+                              @Value("${app.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${app.idempotency.cache-ttl-ms:600000}") long cacheTtlMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.orderIntake = orderIntake;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+        this.completed = new CompletedCache(cacheSize, cacheTtlMs);
+    }
+
+    /** Hex SHA-256 of the request's canonical JSON, stored with the key to spot reuse. */
+    public static String fingerprint(Object request) {
+        try {
+            byte[] json = CANONICAL.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+
+    /**
+     * Runs {@code action} at most once per (scope, key). Only a 200 or 202
+     * carrying an {@link OrderResponse} is remembered; anything else releases
+     * the key so the client can retry.
+     */
+    public ResponseEntity<?> execute(String scope, String key, String fingerprint,
+                                     Supplier<ResponseEntity<?>> action) {
+        String id = scope + ":" + key;
+
+        Cached hit = completed.get(id);
+        if (hit != null) {
+            return replay(hit.fingerprint(), fingerprint, hit.response());
+        }
+
+        InFlight mine = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return awaitDuplicate(running, fingerprint);
+        }
+
+        try {
+            ResponseEntity<?> res = claimAndRun(id, fingerprint, action);
+            mine.result().complete(res);
+            return res;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    private ResponseEntity<?> claimAndRun(String id, String fingerprint, Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> answered = claim(id, fingerprint, true);
+        if (answered != null) {
+            return answered;
+        }
+
+        ResponseEntity<?> res;
+        try {
+            res = action.get();
+        } catch (RuntimeException e) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), IdempotencyRecord.class);
+            throw e;
+        }
+
+        if (res.getStatusCode().value() == 200 && res.getBody() instanceof OrderResponse body) {
+            complete(id, fingerprint, body, null);
+        } else if (res.getStatusCode().value() == 202 && res.getBody() instanceof OrderResponse body) {
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(id)),
+                    new Update().set("status", ACCEPTED).set("response", body),
+                    IdempotencyRecord.class
+            );
+            settleWhenWritten(id, fingerprint, body);
+        } else {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), IdempotencyRecord.class);
+        }
+        return res;
+    }
+
+    /**
+     * Claims the key for this request: null if it is ours to run, otherwise
+     * the answer for a key another request holds or already completed.
+     */
+    private ResponseEntity<?> claim(String id, String fingerprint, boolean retryIfReleased) {
+        Instant now = Instant.now();
+        try {
+            mongoTemplate.insert(IdempotencyRecord.builder()
+                    .id(id)
+                    .fingerprint(fingerprint)
+                    .status(IN_PROGRESS)
+                    .createdAt(now)
+                    .build());
+            return null;
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = mongoTemplate.findById(id, IdempotencyRecord.class);
+            if (existing == null) {
+                // released by the request holding it since our insert: the key is free again
+                return retryIfReleased ? claim(id, fingerprint, false) : stillProcessing();
+            }
+            if (COMPLETED.equals(existing.getStatus())) {
+                completed.put(id, new Cached(existing.getFingerprint(), existing.getResponse()));
+                return replay(existing.getFingerprint(), fingerprint, existing.getResponse());
+            }
+            if (ACCEPTED.equals(existing.getStatus())) {
+                ResponseEntity<?> accepted = replayAccepted(existing, fingerprint, now);
+                if (accepted != null) return accepted;
+            }
+            return takeOverExpiredLease(id, fingerprint, now) ? null : stillProcessing();
+        }
+    }
+
+    private void complete(String id, String fingerprint, OrderResponse body, String fromStatus) {
+        Criteria record = Criteria.where("_id").is(id);
+        if (fromStatus != null) record = record.and("status").is(fromStatus);
+        mongoTemplate.updateFirst(Query.query(record),
+                new Update().set("status", COMPLETED).set("response", body),
+                IdempotencyRecord.class);
+        completed.put(id, new Cached(fingerprint, body));
+    }
+
+    // the writer's outcome settles the key; if it's already known, only the order's presence
+    // is: a missing order then leaves the key ACCEPTED, as the write may have been unknown
+    private void settleWhenWritten(String id, String fingerprint, OrderResponse body) {
+        Optional<CompletableFuture<Order>> ack = orderIntake.pending(body.getId());
+        if (ack.isEmpty()) {
+            if (orderExists(body.getId())) complete(id, fingerprint, body, ACCEPTED);
+            return;
+        }
+        // a failed batch may still have written this order, so a failure is checked
+        ack.get().whenCompleteAsync((saved, error) -> {
+            if (error == null || orderExists(body.getId())) {
+                complete(id, fingerprint, body, ACCEPTED);
+            } else if (!(error instanceof OrderIntakeService.OutcomeUnknownException)) {
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(id).and("status").is(ACCEPTED)),
+                        IdempotencyRecord.class);
+            }
+        }, SETTLER);
+    }
+
+    /**
+     * A retry of a request answered 202: 200 if the order has been written
+     * since, 202 while it may still be queued, null once the lease is over
+     * without the order (the key can then be taken over).
+     */
+    private ResponseEntity<?> replayAccepted(IdempotencyRecord existing, String fingerprint, Instant now) {
+        OrderResponse body = existing.getResponse();
+        if (existing.getFingerprint() != null && !existing.getFingerprint().equals(fingerprint)) {
+            return replay(existing.getFingerprint(), fingerprint, body);
+        }
+        if (body != null && orderExists(body.getId())) {
+            complete(existing.getId(), existing.getFingerprint(), body, ACCEPTED);
+            return ResponseEntity.ok(body);
+        }
+        if (existing.getCreatedAt() != null && existing.getCreatedAt().isAfter(now.minus(lease))) {
+            return ResponseEntity.accepted().body(body);
+        }
+        return null;
+    }
+
+    private boolean orderExists(String orderId) {
+        return orderId != null
+                && mongoTemplate.exists(Query.query(Criteria.where("_id").is(orderId)), Order.class);
+    }
+
+    // the node that claimed the key died mid-request, or its queued order never
+    // got written: let a retry take it over
+    private boolean takeOverExpiredLease(String id, String fingerprint, Instant now) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(id)
+                        .and("status").in(IN_PROGRESS, ACCEPTED)
+                        .and("createdAt").lt(now.minus(lease))),
+                new Update().set("status", IN_PROGRESS).set("createdAt", now).set("fingerprint", fingerprint)
+                        .unset("response"),
+                IdempotencyRecord.class
+        ).getModifiedCount() == 1;
+    }
+
+    private ResponseEntity<?> awaitDuplicate(InFlight running, String fingerprint) {
+        if (!running.fingerprint().equals(fingerprint)) {
+            return differentRequest();
+        }
+        try {
+            return running.result().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return stillProcessing();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(503).build();
+        }
+    }
+
+    private static ResponseEntity<?> replay(String storedFingerprint, String fingerprint, OrderResponse response) {
+        if (storedFingerprint != null && !storedFingerprint.equals(fingerprint)) {
+            return differentRequest();
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<?> differentRequest() {
+        return ResponseEntity.unprocessableEntity().body("Idempotency-Key was already used for a different request");
+    }
+
+    private static ResponseEntity<?> stillProcessing() {
+        return ResponseEntity.status(409).body("A request with this Idempotency-Key is still being processed");
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<ResponseEntity<?>> result) {}
+
+    private record Cached(String fingerprint, OrderResponse response) {}
+
+    /** Bounded LRU of completed keys with a time limit per entry. */
+    private static final class CompletedCache {
+
+        private record Entry(Cached value, long expiresAt) {}
+
+        private final long ttlMs;
+        private final Map<String, Entry> map;
+
+        CompletedCache(int maxSize, long ttlMs) {
+            this.ttlMs = ttlMs;
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized Cached get(String id) {
+            Entry e = map.get(id);
+            if (e == null) return null;
+            if (e.expiresAt() < System.currentTimeMillis()) {
+                map.remove(id);
+                return null;
+            }
+            return e.value();
+        }
+
+        synchronized void put(String id, Cached value) {
+            map.put(id, new Entry(value, System.currentTimeMillis() + ttlMs));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.dto.StockLineStatus;
+import com.shop.commerce_api.dto.StockReservationResult;
+import com.shop.commerce_api.entity.OrderItem;
+import com.shop.commerce_api.entity.Product;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Stock reservation against {@code products.stock}.
+ * <p>
+ * A reservation is one unordered bulk write of conditional decrements
+ * ({@code stock >= q  ->  $inc stock -q}). Each successful line also pushes a
+ * hold id onto the product, so when some lines fail the compensation bulk can
+ * give back exactly the lines this reservation took, without reading first.
+ * Holds are mapped on {@link Product}, so saving a product keeps them, and a
+ * hold left behind by a process that died mid-reservation is swept once it
+ * is older than {@code hold-ttl-ms} (hold ids are ObjectIds, so they sort by
+ * time). Products in striped mode are reserved through {@link StripedStockService}.
+ */
+@Service
+public class InventoryService {
+
+    private static final String HOLDS = "stockHolds";
+
+    private final MongoTemplate mongoTemplate;
+    private final StripedStockService stripedStock;
+    private final LowStockService lowStock;
+
+    private final Duration holdTtl;
+
+    public InventoryService(MongoTemplate mongoTemplate,
+                            StripedStockService stripedStock,
+                            LowStockService lowStock,
+                            @Value("${app.inventory.hold-ttl-ms:600000}") long holdTtlMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.stripedStock = stripedStock;
+        this.lowStock = lowStock;
+        this.holdTtl = Duration.ofMillis(holdTtlMs);
+    }
+
+    public StockReservationResult reserve(List<OrderItem> items) {
+        Map<String, Integer> wanted = quantitiesByProduct(items);
+        if (wanted.isEmpty()) {
+            return new StockReservationResult(true, List.of());
+        }
+
+        Map<String, Integer> plain = new LinkedHashMap<>();
+        Map<String, Integer> striped = new LinkedHashMap<>();
+        wanted.forEach((productId, qty) ->
+                (stripedStock.isStriped(productId) ? striped : plain).put(productId, qty));
+
+        // striped products: per-bucket conditional decrements, stop at the first shortage
+        Map<String, Integer> takenStriped = new HashMap<>();
+        boolean stripedOk = true;
+        for (Map.Entry<String, Integer> e : striped.entrySet()) {
+            if (!stripedStock.take(e.getKey(), e.getValue())) {
+                stripedOk = false;
+                break;
+            }
+            takenStriped.put(e.getKey(), e.getValue());
+        }
+
+        String holdId = new ObjectId().toHexString();
+        int matched = 0;
+        if (stripedOk && !plain.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            plain.forEach((productId, qty) -> bulk.updateOne(
+                    Query.query(Criteria.where("_id").is(productId).and("stock").gte(qty)),
+                    new Update().inc("stock", -qty).push(HOLDS, holdId)
+            ));
+            matched = bulk.execute().getMatchedCount();
+        }
+
+        if (stripedOk && matched == plain.size()) {
+            // every line went through: drop the hold markers in one updateMulti
+            if (!plain.isEmpty()) {
+                mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("_id").in(plain.keySet())),
+                        new Update().pull(HOLDS, holdId),
+                        Product.class
+                );
+            }
+            List<StockLineStatus> lines = wanted.entrySet().stream()
+                    .map(e -> new StockLineStatus(e.getKey(), e.getValue(), null, true))
+                    .toList();
+            lowStock.stockChanged(wanted.keySet());
+            return new StockReservationResult(true, lines);
+        }
+
+        // some lines failed: give back only what this reservation actually took
+        takenStriped.forEach(stripedStock::put);
+        if (matched > 0) {
+            BulkOperations undo = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            plain.forEach((productId, qty) -> undo.updateOne(
+                    Query.query(Criteria.where("_id").is(productId).and(HOLDS).is(holdId)),
+                    new Update().inc("stock", qty).pull(HOLDS, holdId)
+            ));
+            undo.execute();
+        }
+
+        Map<String, Integer> available = availableStock(wanted.keySet());
+        List<StockLineStatus> lines = wanted.entrySet().stream()
+                .map(e -> {
+                    int stock = available.getOrDefault(e.getKey(), 0);
+                    return new StockLineStatus(e.getKey(), e.getValue(), stock, stock >= e.getValue());
+                })
+                .toList();
+        return new StockReservationResult(false, lines);
+    }
+
+    /** Puts previously reserved stock back (e.g. order cancelled or never persisted). */
+    public void release(List<OrderItem> items) {
+        Map<String, Integer> reserved = quantitiesByProduct(items);
+        if (reserved.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        boolean anyPlain = false;
+        for (Map.Entry<String, Integer> e : reserved.entrySet()) {
+            if (stripedStock.isStriped(e.getKey())) {
+                stripedStock.put(e.getKey(), e.getValue());
+            } else {
+                bulk.updateOne(
+                        Query.query(Criteria.where("_id").is(e.getKey())),
+                        new Update().inc("stock", e.getValue())
+                );
+                anyPlain = true;
+            }
+        }
+        if (anyPlain) {
+            bulk.execute();
+        }
+        lowStock.stockChanged(reserved.keySet());
+    }
+
+    // the stock a dead reservation took isn't known to be unused, so only the marker goes
+    @Scheduled(fixedDelayString = "${app.inventory.hold-sweep-ms:300000}")
+    public void sweepHolds() {
+        String cutoff = new ObjectId(Date.from(Instant.now().minus(holdTtl))).toHexString();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where(HOLDS).lt(cutoff)),
+                new Update().pull(HOLDS, new Document("$lt", cutoff)),
+                Product.class
+        );
+    }
+
+    private Map<String, Integer> availableStock(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("_id").in(productIds));
+        query.fields().include("stock").include("stockStriped");
+
+        Map<String, Integer> res = new HashMap<>();
+        List<String> stripedIds = new ArrayList<>();
+        for (Product p : mongoTemplate.find(query, Product.class)) {
+            if (p.isStockStriped()) {
+                // may have been switched on another node since our last refresh
+                stripedStock.markStriped(p.getId());
+                stripedIds.add(p.getId());
+            } else {
+                res.put(p.getId(), p.getStock() != null ? p.getStock() : 0);
+            }
+        }
+        if (!stripedIds.isEmpty()) {
+            res.putAll(stripedStock.totals(stripedIds));
+        }
+        return res;
+    }
+
+    // the same product may appear on several lines; reserve it as one line
+    private static Map<String, Integer> quantitiesByProduct(List<OrderItem> items) {
+        Map<String, Integer> res = new LinkedHashMap<>();
+        if (items == null) {
+            return res;
+        }
+        for (OrderItem item : items) {
+            if (item.getProductId() == null || item.getQuantity() <= 0) continue;
+            res.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return res;
+    }
+}
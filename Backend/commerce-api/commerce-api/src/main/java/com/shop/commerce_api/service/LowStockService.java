@@ -0,0 +1,205 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.entity.Category;
+import com.shop.commerce_api.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Which products are below their low-stock threshold, kept up to date as
+ * stock moves instead of scanning the catalog.
+ * <p>
+ * The threshold is the product's own, else its category's, else
+ * {@code app.inventory.low-stock-threshold}. Every stock mutation marks the
+ * product dirty; dirty products are re-evaluated in one batched read about
+ * once a second, and a crossing flips {@code products.lowStock} (with the
+ * time it went low). Only low products carry the flag in a partial index, so
+ * other nodes reload the whole low set cheaply on each sync.
+ */
+@Service
+public class LowStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockService.class);
+
+    private static final int BATCH = 500;
+
+    public record Entry(String productId, String title, int stock, int threshold, Instant since) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final StripedStockService stripedStock;
+    private final int defaultThreshold;
+
+    private final Map<String, Entry> low = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, Integer> categoryThresholds = Map.of();
+
+    public LowStockService(MongoTemplate mongoTemplate,
+                           StripedStockService stripedStock,
+                           @Value("${app.inventory.low-stock-threshold:5}") int defaultThreshold) {
+        this.mongoTemplate = mongoTemplate;
+        this.stripedStock = stripedStock;
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    /** Call after any change to these products' stock or threshold. */
+    public void stockChanged(Collection<String> productIds) {
+        dirty.addAll(productIds);
+    }
+
+    public void stockChanged(String productId) {
+        dirty.add(productId);
+    }
+
+    /** The category's threshold changed: re-evaluate its products. */
+    public void categoryChanged(String categoryId) {
+        loadCategoryThresholds();
+        Query query = Query.query(Criteria.where("category").is(categoryId));
+        query.fields().include("_id");
+        mongoTemplate.find(query, Product.class).forEach(p -> dirty.add(p.getId()));
+    }
+
+    public void productDeleted(String productId) {
+        dirty.remove(productId);
+        low.remove(productId);
+    }
+
+    public int count() {
+        return low.size();
+    }
+
+    /** Low products, most recently gone low first. */
+    public List<Entry> entries() {
+        List<Entry> res = new ArrayList<>(low.values());
+        res.sort(Comparator.comparing(Entry::since, Comparator.nullsLast(Comparator.reverseOrder())));
+        return res;
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.low-stock.flush-ms:1000}")
+    public void flush() {
+        if (dirty.isEmpty()) return;
+
+        List<String> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        for (int i = 0; i < ids.size(); i += BATCH) {
+            evaluate(ids.subList(i, Math.min(ids.size(), i + BATCH)), false);
+        }
+    }
+
+    // picks up thresholds and crossings recorded by other nodes
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.inventory.low-stock.sync-ms:30000}")
+    public void sync() {
+        loadCategoryThresholds();
+
+        Query query = Query.query(Criteria.where("lowStock").is(true));
+        query.fields().include("title", "stock", "stockStriped", "category", "lowStockThreshold", "lowStockSince");
+        List<Product> products = mongoTemplate.find(query, Product.class);
+
+        Map<String, Integer> striped = stripedTotals(products);
+        Map<String, Entry> fresh = new HashMap<>();
+        for (Product p : products) {
+            fresh.put(p.getId(), new Entry(p.getId(), p.getTitle(), stockOf(p, striped), thresholdOf(p), p.getLowStockSince()));
+        }
+        low.keySet().retainAll(fresh.keySet());
+        low.putAll(fresh);
+    }
+
+    // Products saved before the flag existed: evaluate them once, in the background
+    @EventListener(ApplicationReadyEvent.class)
+    public void evaluateUnflagged() {
+        Query query = Query.query(Criteria.where("lowStock").exists(false));
+        query.fields().include("_id");
+        Thread.ofVirtual().name("low-stock-init").start(() -> {
+            try (Stream<Product> stream = mongoTemplate.stream(query, Product.class)) {
+                Iterator<Product> it = stream.iterator();
+                List<String> batch = new ArrayList<>(BATCH);
+                while (it.hasNext()) {
+                    batch.add(it.next().getId());
+                    if (batch.size() == BATCH) {
+                        evaluate(batch, true);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) evaluate(batch, true);
+            } catch (RuntimeException e) {
+                log.error("Initial low-stock evaluation failed", e);
+            }
+        });
+    }
+
+    // force: write the flag even if it looks unchanged (it may not be stored yet)
+    private void evaluate(List<String> ids, boolean force) {
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("title", "stock", "stockStriped", "category", "lowStockThreshold", "lowStock", "lowStockSince");
+        List<Product> products = mongoTemplate.find(query, Product.class);
+
+        Set<String> gone = new HashSet<>(ids);
+        Map<String, Integer> striped = stripedTotals(products);
+        for (Product p : products) {
+            gone.remove(p.getId());
+
+            int stock = stockOf(p, striped);
+            int threshold = thresholdOf(p);
+            boolean isLow = stock < threshold;
+
+            Instant since = p.getLowStockSince();
+            if (isLow != p.isLowStock() || force) {
+                if (isLow != p.isLowStock()) since = isLow ? Instant.now() : null;
+                // only if not already flipped (e.g. by another node), so "since" stays the first crossing
+                Update update = new Update().set("lowStock", isLow);
+                if (isLow) update.set("lowStockSince", since);
+                else update.unset("lowStockSince");
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(p.getId()).and("lowStock").ne(isLow)),
+                        update, Product.class);
+            }
+
+            if (isLow) {
+                low.put(p.getId(), new Entry(p.getId(), p.getTitle(), stock, threshold, since));
+            } else {
+                low.remove(p.getId());
+            }
+        }
+        gone.forEach(low::remove);
+    }
+
+    private int thresholdOf(Product p) {
+        if (p.getLowStockThreshold() != null) return p.getLowStockThreshold();
+        Integer byCategory = p.getCategory() != null ? categoryThresholds.get(p.getCategory()) : null;
+        return byCategory != null ? byCategory : defaultThreshold;
+    }
+
+    private Map<String, Integer> stripedTotals(List<Product> products) {
+        List<String> ids = products.stream().filter(Product::isStockStriped).map(Product::getId).toList();
+        return ids.isEmpty() ? Map.of() : stripedStock.totals(ids);
+    }
+
+    private static int stockOf(Product p, Map<String, Integer> striped) {
+        if (p.isStockStriped()) return striped.getOrDefault(p.getId(), 0);
+        return p.getStock() != null ? p.getStock() : 0;
+    }
+
+    // categories are few; only those with their own threshold are kept
+    private void loadCategoryThresholds() {
+        Query query = Query.query(Criteria.where("lowStockThreshold").ne(null));
+        query.fields().include("lowStockThreshold");
+        Map<String, Integer> res = new HashMap<>();
+        for (Category c : mongoTemplate.find(query, Category.class)) {
+            res.put(c.getId(), c.getLowStockThreshold());
+        }
+        categoryThresholds = res;
+    }
+}
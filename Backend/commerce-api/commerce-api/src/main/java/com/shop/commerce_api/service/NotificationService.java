@@ -0,0 +1,195 @@
+package com.shop.commerce_api.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.shop.commerce_api.entity.Notification;
+import com.shop.commerce_api.entity.OrderEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Customer notifications. Order status notifications arrive from the outbox,
+ * a batch at a time, are written in one unordered bulk insert and pushed to
+ * the customers' live streams.
+ * <p>
+ * Lists are keyset-paged on the (userEmail, createdAt, _id) index. The unread
+ * badge reads one document from {@code notification_counters}, kept in step
+ * as notifications are written (upserting the counter), read and cleared; a
+ * user without a counter gets one from a count on first read. That count can
+ * race a notification being written, so counters are recounted nightly.
+ * Marking read and clearing are single multi-document writes on the same index.
+ */
+@Service
+public class NotificationService implements OrderEventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationService.class);
+
+    private static final String COUNTERS = "notification_counters";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationStreamService stream;
+
+    public NotificationService(MongoTemplate mongoTemplate, NotificationStreamService stream) {
+        this.mongoTemplate = mongoTemplate;
+        this.stream = stream;
+    }
+
+    @Override
+    public void deliver(List<OrderEvent> events) {
+        List<Notification> notifications = events.stream()
+                .filter(e -> e.getUserEmail() != null)
+                .map(e -> Notification.builder()
+                        .id(e.getId())
+                        .userEmail(e.getUserEmail())
+                        .message("Your order #" + e.getOrderId() + " is now " + e.getTo())
+                        .read(false)
+                        .createdAt(e.getCreatedAt())
+                        .build())
+                .toList();
+        if (notifications.isEmpty()) return;
+
+        Set<Integer> skipped = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class)
+                    .insert(notifications)
+                    .execute();
+        } catch (BulkOperationException e) {
+            // redelivered: the notification with this event's id is already there
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) throw e;
+                skipped.add(error.getIndex());
+            }
+        }
+
+        List<Notification> inserted = new ArrayList<>();
+        Map<String, Integer> added = new HashMap<>();
+        for (int i = 0; i < notifications.size(); i++) {
+            if (skipped.contains(i)) continue;
+            inserted.add(notifications.get(i));
+            added.merge(notifications.get(i).getUserEmail(), 1, Integer::sum);
+        }
+        addUnread(added);
+        stream.publish(inserted);
+    }
+
+    /**
+     * One page of the user's notifications, newest first. {@code before} and
+     * {@code beforeId} are the createdAt and id of the last one already shown.
+     */
+    public List<Notification> page(String email, Instant before, String beforeId, int limit) {
+        Criteria criteria = Criteria.where("userEmail").is(email);
+        if (before != null) {
+            Criteria older = Criteria.where("createdAt").lt(before);
+            criteria = beforeId == null
+                    ? criteria.andOperator(older)
+                    : criteria.orOperator(older, Criteria.where("createdAt").is(before).and("_id").lt(beforeId));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(limit);
+        return mongoTemplate.find(query, Notification.class);
+    }
+
+    public long unreadCount(String email) {
+        Document counter = mongoTemplate.findById(email, Document.class, COUNTERS);
+        if (counter != null) {
+            return Math.max(0, ((Number) counter.get("unread")).longValue());
+        }
+
+        // no counter yet: start it from a count, unless a writer created one meanwhile.
+        // A notification written between the count and the insert, or one counted by a
+        // writer-created counter but missing older unread ones, is fixed by the recount.
+        long unread = countUnread(email);
+        Document stored = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(email)),
+                new Update().setOnInsert("unread", unread),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, COUNTERS);
+        return stored != null ? Math.max(0, ((Number) stored.get("unread")).longValue()) : unread;
+    }
+
+    /**
+     * Marks the user's unread notifications read in one {@code updateMulti}:
+     * all of them, or only those created up to {@code upTo} (inclusive).
+     * Returns how many changed.
+     */
+    public long markRead(String email, Instant upTo) {
+        Criteria criteria = Criteria.where("userEmail").is(email).and("read").is(false);
+        if (upTo != null) criteria = criteria.and("createdAt").lte(upTo);
+        return markRead(email, criteria);
+    }
+
+    /** Marks one notification read; 0 if it isn't the user's or was already read. */
+    public long markRead(String email, String id) {
+        return markRead(email, Criteria.where("_id").is(id).and("userEmail").is(email).and("read").is(false));
+    }
+
+    private long markRead(String email, Criteria unread) {
+        long modified = mongoTemplate.updateMulti(Query.query(unread), Update.update("read", true), Notification.class)
+                .getModifiedCount();
+        // take off exactly what changed, so notifications arriving meanwhile stay counted
+        if (modified > 0) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(email)),
+                    new Update().inc("unread", -modified), COUNTERS);
+        }
+        return modified;
+    }
+
+    /** Deletes all the user's notifications in one {@code deleteMany}; returns how many. */
+    public long clear(String email) {
+        long deleted = mongoTemplate.remove(Query.query(Criteria.where("userEmail").is(email)), Notification.class)
+                .getDeletedCount();
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(email)), Update.update("unread", 0L), COUNTERS);
+        return deleted;
+    }
+
+    // upserted, so a notification written before the user's first read still counts
+    private void addUnread(Map<String, Integer> byEmail) {
+        if (byEmail.isEmpty()) return;
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COUNTERS);
+        byEmail.forEach((email, n) ->
+                ops.upsert(Query.query(Criteria.where("_id").is(email)), new Update().inc("unread", n.longValue())));
+        ops.execute();
+    }
+
+    /**
+     * Sets every counter to the actual number of unread notifications. A
+     * counter that changes while it is being recounted keeps its value until
+     * the next run.
+     */
+    @Scheduled(cron = "${app.notifications.recount-cron:0 0 3 * * *}", zone = "UTC")
+    public void recount() {
+        long fixed = 0;
+        try (Stream<Document> counters = mongoTemplate.stream(new Query(), Document.class, COUNTERS)) {
+            for (Document counter : (Iterable<Document>) counters::iterator) {
+                String email = counter.getString("_id");
+                Object seen = counter.get("unread");
+                long actual = countUnread(email);
+                if (seen instanceof Number n && n.longValue() == actual) continue;
+                fixed += mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(email).and("unread").is(seen)),
+                        Update.update("unread", actual), COUNTERS).getModifiedCount();
+            }
+        }
+        if (fixed > 0) log.info("Recounted {} notification counters", fixed);
+    }
+
+    private long countUnread(String email) {
+        return mongoTemplate.count(
+                Query.query(Criteria.where("userEmail").is(email).and("read").is(false)), Notification.class);
+    }
+}
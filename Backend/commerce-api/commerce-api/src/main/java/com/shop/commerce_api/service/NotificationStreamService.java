@@ -0,0 +1,89 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.entity.Notification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Customers' notifications pushed over SSE, one hub key per email. Each
+ * event's id is the notification id, so a client reconnecting with
+ * Last-Event-ID gets what it missed replayed from Mongo (newest
+ * {@code max-replay} at most; past that, or if the id is unknown, a
+ * {@code resync} event tells it to reload the list).
+ * <p>
+ * Notifications are pushed by the node that writes them; clients of other
+ * nodes catch up on reconnect or through the unread-count poll.
+ */
+@Service
+public class NotificationStreamService {
+
+    private final MongoTemplate mongoTemplate;
+    private final SseHub<String> hub;
+    private final int maxReplay;
+
+    public NotificationStreamService(MongoTemplate mongoTemplate,
+                                     @Value("${app.notifications.stream.buffer:64}") int bufferSize,
+                                     @Value("${app.notifications.stream.timeout-ms:1800000}") long timeoutMs,
+                                     @Value("${app.notifications.stream.max-replay:100}") int maxReplay) {
+        this.mongoTemplate = mongoTemplate;
+        this.hub = new SseHub<>("notifications", bufferSize, timeoutMs);
+        this.maxReplay = maxReplay;
+    }
+
+    public SseEmitter subscribe(String email, String lastEventId) {
+        List<SseHub.Event> initial = new ArrayList<>();
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            List<Notification> missed = missedSince(email, lastEventId.trim());
+            if (missed == null || missed.size() > maxReplay) {
+                initial.add(new SseHub.Event(null, "resync", Map.of()));
+            } else {
+                missed.forEach(n -> initial.add(event(n)));
+            }
+        }
+        return hub.subscribe(email, initial);
+    }
+
+    public void publish(List<Notification> notifications) {
+        if (!hub.hasSubscribers()) return;
+        notifications.forEach(n -> hub.publish(n.getUserEmail(), event(n)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        hub.heartbeat();
+    }
+
+    public Map<String, Object> stats() {
+        return hub.stats();
+    }
+
+    // oldest first, up to maxReplay + 1 so an overflow shows; null if the id isn't one of the user's
+    private List<Notification> missedSince(String email, String id) {
+        Query lastSeen = Query.query(Criteria.where("_id").is(id).and("userEmail").is(email));
+        lastSeen.fields().include("createdAt");
+        Notification last = mongoTemplate.findOne(lastSeen, Notification.class);
+        if (last == null || last.getCreatedAt() == null) return null;
+
+        Criteria newer = Criteria.where("userEmail").is(email).orOperator(
+                Criteria.where("createdAt").gt(last.getCreatedAt()),
+                Criteria.where("createdAt").is(last.getCreatedAt()).and("_id").gt(id));
+        Query query = Query.query(newer)
+                .with(Sort.by(Sort.Direction.ASC, "createdAt").and(Sort.by(Sort.Direction.ASC, "_id")))
+                .limit(maxReplay + 1);
+        return mongoTemplate.find(query, Notification.class);
+    }
+
+    private static SseHub.Event event(Notification n) {
+        return new SseHub.Event(n.getId(), "notification", n);
+    }
+}
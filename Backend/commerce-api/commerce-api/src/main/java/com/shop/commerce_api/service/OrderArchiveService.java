@@ -0,0 +1,286 @@
+package com.shop.commerce_api.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.shop.commerce_api.dto.CursorPage;
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderStatus;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps {@code orders} small: finished orders (shipped or cancelled) older
+ * than {@code after-months} are moved to one archive collection per month,
+ * {@code orders_archive_yyyy_MM}, so the hot collection and its indexes stay
+ * in memory.
+ * <p>
+ * Orders move in batches, copy then delete. The copy ignores duplicates, so
+ * a run that died halfway (or two nodes running at once) just copies again.
+ * Each delete only removes its order if it is still exactly as copied (same
+ * status, same status writes), and an order changed in between has its
+ * archive copy dropped. The month comes from the
+ * ObjectId, so a lookup by id knows which archive to read.
+ * {@code order_archive_users} lists the months that hold each customer's
+ * orders, so "my orders" reads only those archives, and only as far back as
+ * the page needs.
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    static final String HOT = "orders";
+    static final String PREFIX = "orders_archive_";
+    private static final String USERS = "order_archive_users";
+
+    private static final List<String> FINISHED = List.of(OrderStatus.SHIPPED.name(), OrderStatus.CANCELLED.name());
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final int DUPLICATE_KEY = 11000;
+    private static final Comparator<Order> NEWEST_FIRST =
+            Comparator.comparing(Order::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(Order::getId, Comparator.reverseOrder());
+
+    private final MongoTemplate mongoTemplate;
+    private final int afterMonths;
+    private final int batchSize;
+
+    private final Set<String> indexed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong archived = new AtomicLong();
+    private volatile Instant lastRun;
+
+    // estimated size of all archives, recomputed at most once a minute
+    private volatile long archivedTotal;
+    private volatile long archivedTotalAt;
+
+    public OrderArchiveService(MongoTemplate mongoTemplate,
+                               @Value("${app.orders.archive.after-months:12}") int afterMonths,
+                               @Value("${app.orders.archive.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.afterMonths = afterMonths;
+        this.batchSize = batchSize;
+    }
+
+    /** Orders created before this UTC day may be archived. */
+    public LocalDate horizon() {
+        return LocalDate.now(ZoneOffset.UTC).minusMonths(afterMonths);
+    }
+
+    // ---------- archiving ----------
+
+    @Scheduled(cron = "${app.orders.archive.cron:0 45 1 * * *}", zone = "UTC")
+    public void archive() {
+        Date cutoff = Date.from(horizon().atStartOfDay(ZoneOffset.UTC).toInstant());
+        long moved = 0;
+        int read;
+        do {
+            read = archiveBatch(cutoff);
+            moved += read;
+        } while (read == batchSize);
+
+        lastRun = Instant.now();
+        archivedTotalAt = 0;
+        log.info("Archived {} orders created before {}", moved, cutoff.toInstant());
+    }
+
+    // returns how many orders the batch picked up
+    private int archiveBatch(Date cutoff) {
+        // (status, createdAt) index; raw documents so the copy is exact
+        Query query = Query.query(Criteria.where("status").in(FINISHED).and("createdAt").lt(cutoff)).limit(batchSize);
+        List<Document> docs = mongoTemplate.find(query, Document.class, HOT);
+        if (docs.isEmpty()) return 0;
+
+        Map<String, List<Document>> byMonth = new TreeMap<>();
+        docs.forEach(d -> byMonth.computeIfAbsent(monthOf(d), m -> new ArrayList<>()).add(d));
+
+        // list the months first: a month listed with nothing in it only costs an empty read
+        BulkOperations users = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, USERS);
+        boolean anyUser = false;
+        for (Map.Entry<String, List<Document>> e : byMonth.entrySet()) {
+            Set<String> userIds = new HashSet<>();
+            e.getValue().forEach(d -> {
+                if (d.getString("userId") != null) userIds.add(d.getString("userId"));
+            });
+            for (String userId : userIds) {
+                users.upsert(Query.query(Criteria.where("_id").is(userId)), new Update().addToSet("months", e.getKey()));
+                anyUser = true;
+            }
+        }
+        if (anyUser) users.execute();
+
+        byMonth.forEach((month, monthDocs) -> copy(archive(month), monthDocs));
+
+        // one deleteOne per order, matching it as it was read: every status write
+        // changes `transitions`, so an order touched since the copy stays
+        List<Object> ids = docs.stream().map(d -> d.get("_id")).toList();
+        List<DeleteOneModel<Document>> deletes = docs.stream()
+                .map(d -> new DeleteOneModel<Document>(Filters.and(
+                        Filters.eq("_id", d.get("_id")),
+                        Filters.eq("status", d.get("status")),
+                        Filters.eq("transitions", d.get("transitions")))))
+                .toList();
+        long deleted = mongoTemplate.getCollection(HOT)
+                .bulkWrite(deletes, new BulkWriteOptions().ordered(false))
+                .getDeletedCount();
+
+        if (deleted < ids.size()) {
+            // changed status since we read them: they stay hot, so drop their copies
+            Query stillHot = Query.query(Criteria.where("_id").in(ids));
+            stillHot.fields().include("_id");
+            for (Document d : mongoTemplate.find(stillHot, Document.class, HOT)) {
+                mongoTemplate.getCollection(PREFIX + monthOf(d)).deleteOne(Filters.eq("_id", d.get("_id")));
+            }
+        }
+
+        archived.addAndGet(deleted);
+        return docs.size();
+    }
+
+    private static void copy(MongoCollection<Document> archive, List<Document> docs) {
+        try {
+            archive.insertMany(docs, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // already copied by an earlier (interrupted) run or another node
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) throw e;
+            }
+        }
+    }
+
+    private MongoCollection<Document> archive(String month) {
+        String name = PREFIX + month;
+        if (indexed.add(name)) {
+            // archives are only read by id or by customer
+            mongoTemplate.indexOps(name).createIndex(new CompoundIndexDefinition(
+                    new Document("userId", 1).append("createdAt", -1).append("_id", -1)).named("userId_createdAt"));
+        }
+        return mongoTemplate.getCollection(name);
+    }
+
+    // ---------- lookups ----------
+
+    /** The order from the hot collection or, failing that, from its month's archive. */
+    public Optional<Order> findById(String id) {
+        Order hot = mongoTemplate.findById(id, Order.class, HOT);
+        if (hot != null || !ObjectId.isValid(id)) return Optional.ofNullable(hot);
+
+        String month = monthOf(new ObjectId(id).getDate().toInstant());
+        return Optional.ofNullable(mongoTemplate.findById(id, Order.class, PREFIX + month));
+    }
+
+    /**
+     * One page of a customer's orders, newest first, keyset-paged on
+     * (createdAt, _id) across the hot collection and the archives that hold
+     * some of theirs. {@code cursor} is the previous page's nextCursor; an
+     * unreadable one throws {@link IllegalArgumentException}. Archives are
+     * read newest month first, and only while they can still hold an order
+     * that belongs on the page.
+     */
+    public CursorPage<Order> findByUserId(String userId, String cursor, int limit) {
+        OrderSearchService.Cursor after = cursor != null && !cursor.isBlank()
+                ? OrderSearchService.decodeCursor(OrderSearchService.SortField.CREATED_AT, cursor)
+                : null;
+        Instant afterAt = after != null ? (Instant) after.value() : null;
+
+        List<Order> found = new ArrayList<>(page(userId, after, limit, HOT));
+
+        Document listed = mongoTemplate.findById(userId, Document.class, USERS);
+        List<String> months = listed == null ? List.of() : listed.getList("months", String.class, List.of()).stream()
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        for (String month : months) {
+            // createdAt is set moments before the id, so a day's margin covers month edges
+            YearMonth ym = YearMonth.parse(month, MONTH);
+            Instant start = ym.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().minus(Duration.ofDays(1));
+            Instant end = ym.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().plus(Duration.ofDays(1));
+            if (afterAt != null && start.isAfter(afterAt)) continue;   // all shown already
+
+            if (found.size() > limit) {
+                found.sort(NEWEST_FIRST);
+                Instant last = found.get(limit).getCreatedAt();
+                if (last != null && !last.isBefore(end)) break;        // this month and older can't make the page
+            }
+            found.addAll(page(userId, after, limit, PREFIX + month));
+        }
+
+        found.sort(NEWEST_FIRST);
+        if (found.size() <= limit) {
+            return new CursorPage<>(found, null);
+        }
+        List<Order> items = found.subList(0, limit);
+        return new CursorPage<>(items,
+                OrderSearchService.encodeCursor(OrderSearchService.SortField.CREATED_AT, items.get(limit - 1)));
+    }
+
+    // limit + 1 so the caller can tell whether there is a next page; the userId_createdAt index everywhere
+    private List<Order> page(String userId, OrderSearchService.Cursor after, int limit, String collection) {
+        Criteria mine = Criteria.where("userId").is(userId);
+        if (after != null) {
+            mine = mine.andOperator(OrderSearchService.after(OrderSearchService.SortField.CREATED_AT, false, after));
+        }
+        Query query = Query.query(mine)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(limit + 1);
+        return mongoTemplate.find(query, Order.class, collection);
+    }
+
+    /** Orders in the archives, from collection metadata. */
+    public long archivedCount() {
+        long now = System.currentTimeMillis();
+        if (now - archivedTotalAt > 60_000) {
+            archivedTotal = mongoTemplate.getCollectionNames().stream()
+                    .filter(n -> n.startsWith(PREFIX))
+                    .mapToLong(mongoTemplate::estimatedCount)
+                    .sum();
+            archivedTotalAt = now;
+        }
+        return archivedTotal;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("hotOrders", mongoTemplate.estimatedCount(HOT));
+        res.put("horizon", horizon());
+        res.put("archivedSinceStart", archived.get());
+        res.put("lastRun", lastRun);
+        res.put("archives", mongoTemplate.getCollectionNames().stream()
+                .filter(n -> n.startsWith(PREFIX))
+                .sorted()
+                .toList());
+        return res;
+    }
+
+    // the ObjectId's timestamp; createdAt for ids that aren't ObjectIds
+    private static String monthOf(Document doc) {
+        Object id = doc.get("_id");
+        if (id instanceof ObjectId oid) return monthOf(oid.getDate().toInstant());
+        Date createdAt = doc.getDate("createdAt");
+        return monthOf(createdAt != null ? createdAt.toInstant() : Instant.EPOCH);
+    }
+
+    private static String monthOf(Instant at) {
+        return LocalDate.ofInstant(at, ZoneOffset.UTC).format(MONTH);
+    }
+}
@@ -0,0 +1,15 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.entity.OrderEvent;
+
+import java.util.List;
+
+/**
+ * Receives order status changes from the outbox. Delivery is at-least-once:
+ * after a failure (here or in another sink) the whole batch comes again, so
+ * implementations must tolerate events they have already seen.
+ */
+public interface OrderEventSink {
+
+    void deliver(List<OrderEvent> events);
+}
@@ -0,0 +1,191 @@
+package com.shop.commerce_api.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.shop.commerce_api.entity.OrderStatus;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Order exports for accounting, streamed from one cursor: documents are read
+ * in batches, projected to the exported fields and written straight to the
+ * response, so memory stays flat however many orders the range holds.
+ * <p>
+ * The range runs on the (createdAt, _id) index, or (status, createdAt, _id)
+ * when a status is given, in ascending order. CSV has one row per order line
+ * (an order without items gets one row with empty line columns); NDJSON has
+ * one object per order with its lines nested.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final List<String> CSV_HEADER = List.of(
+            "orderId", "createdAt", "status", "userId", "fullName", "email", "phone",
+            "address", "city", "postalCode", "country", "orderTotal",
+            "productId", "title", "price", "quantity", "lineTotal");
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderExportService(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Orders created in [from, to), optionally with one status, written to {@code out}. */
+    public void export(Instant from, Instant to, OrderStatus status, Format format, OutputStream out) throws IOException {
+        List<Bson> filters = new ArrayList<>();
+        if (status != null) filters.add(Filters.eq("status", status.name()));
+        if (from != null) filters.add(Filters.gte("createdAt", Date.from(from)));
+        if (to != null) filters.add(Filters.lt("createdAt", Date.from(to)));
+
+        Bson projection = Projections.include(
+                "userId", "fullName", "email", "phone", "address", "city", "postalCode", "country",
+                "total", "status", "createdAt",
+                "items.productId", "items.title", "items.price", "items.quantity");
+
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection("orders")
+                .find(filters.isEmpty() ? new Document() : Filters.and(filters))
+                .projection(projection)
+                .sort(Sorts.ascending("createdAt", "_id"))
+                .batchSize(BATCH_SIZE)
+                .cursor()) {
+            if (format == Format.CSV) {
+                writeCsv(cursor, out);
+            } else {
+                writeNdjson(cursor, out);
+            }
+        }
+    }
+
+    private static void writeCsv(MongoCursor<Document> cursor, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        w.write(String.join(",", CSV_HEADER));
+        w.write("\r\n");
+
+        while (cursor.hasNext()) {
+            Document o = cursor.next();
+            String order = String.join(",",
+                    csv(idOf(o)),
+                    csv(instantOf(o)),
+                    csv(o.getString("status")),
+                    csv(o.getString("userId")),
+                    csv(o.getString("fullName")),
+                    csv(o.getString("email")),
+                    csv(o.getString("phone")),
+                    csv(o.getString("address")),
+                    csv(o.getString("city")),
+                    csv(o.getString("postalCode")),
+                    csv(o.getString("country")),
+                    csv(o.get("total")));
+
+            List<Document> items = o.getList("items", Document.class, List.of());
+            if (items.isEmpty()) {
+                w.write(order);
+                w.write(",,,,,\r\n");
+                continue;
+            }
+            for (Document item : items) {
+                double price = number(item.get("price"));
+                int quantity = (int) number(item.get("quantity"));
+                w.write(order);
+                w.write(',');
+                w.write(String.join(",",
+                        csv(item.getString("productId")),
+                        csv(item.getString("title")),
+                        csv(price),
+                        csv(quantity),
+                        csv(price * quantity)));
+                w.write("\r\n");
+            }
+        }
+        w.flush();
+    }
+
+    private void writeNdjson(MongoCursor<Document> cursor, OutputStream out) throws IOException {
+        JsonGenerator g = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        g.setRootValueSeparator(null);
+
+        while (cursor.hasNext()) {
+            Document o = cursor.next();
+            g.writeStartObject();
+            g.writeStringField("orderId", idOf(o));
+            g.writeStringField("createdAt", instantOf(o));
+            g.writeStringField("status", o.getString("status"));
+            g.writeStringField("userId", o.getString("userId"));
+            g.writeStringField("fullName", o.getString("fullName"));
+            g.writeStringField("email", o.getString("email"));
+            g.writeStringField("phone", o.getString("phone"));
+            g.writeStringField("address", o.getString("address"));
+            g.writeStringField("city", o.getString("city"));
+            g.writeStringField("postalCode", o.getString("postalCode"));
+            g.writeStringField("country", o.getString("country"));
+            g.writeNumberField("total", number(o.get("total")));
+
+            g.writeArrayFieldStart("items");
+            for (Document item : o.getList("items", Document.class, List.of())) {
+                double price = number(item.get("price"));
+                int quantity = (int) number(item.get("quantity"));
+                g.writeStartObject();
+                g.writeStringField("productId", item.getString("productId"));
+                g.writeStringField("title", item.getString("title"));
+                g.writeNumberField("price", price);
+                g.writeNumberField("quantity", quantity);
+                g.writeNumberField("lineTotal", price * quantity);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+
+            g.writeEndObject();
+            g.writeRaw('\n');
+        }
+        g.flush();
+    }
+
+    private static String idOf(Document o) {
+        Object id = o.get("_id");
+        return id instanceof ObjectId oid ? oid.toHexString() : String.valueOf(id);
+    }
+
+    private static String instantOf(Document o) {
+        Date createdAt = o.getDate("createdAt");
+        return createdAt != null ? createdAt.toInstant().toString() : null;
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number n ? n.doubleValue() : 0;
+    }
+
+    // RFC 4180: quote when needed, double embedded quotes
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String s = value.toString();
+        // a spreadsheet would run customer text starting like a formula; numbers are ours
+        if (value instanceof String && !s.isEmpty() && "=+-@\t\r".indexOf(s.charAt(0)) >= 0) {
+            s = "'" + s;
+        }
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
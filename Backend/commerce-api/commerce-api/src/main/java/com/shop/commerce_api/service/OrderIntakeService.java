@@ -0,0 +1,313 @@
+package com.shop.commerce_api.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.shop.commerce_api.entity.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Order intake stage between the checkout endpoint and Mongo.
+ * <p>
+ * Request threads validate and reserve stock, then hand the order to a bounded
+ * queue and wait for its acknowledgement. A single writer drains the queue in
+ * micro-batches (up to {@code batch-size} orders or {@code max-batch-delay-ms},
+ * whichever comes first) and group-commits each batch with one
+ * {@code insertMany} at majority/journaled write concern. An order is only
+ * acknowledged once that write is durable. When the queue is full,
+ * {@link #submit} rejects immediately so the caller can answer 429.
+ */
+@Service
+public class OrderIntakeService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final InventoryService inventoryService;
+    private final SalesRollupService salesRollups;
+    private final DashboardStreamService dashboardStream;
+
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long maxBatchDelayNanos;
+    private final long ackTimeoutMs;
+    private final int maxAttempts;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // order id -> acknowledgement, while the order is queued or being written
+    private final ConcurrentHashMap<String, CompletableFuture<Order>> unacked = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    private record Pending(Order order, CompletableFuture<Order> ack) {}
+
+    /**
+     * Fails an acknowledgement when the insert may or may not have landed: the
+     * order's presence in Mongo decides, and its stock stays reserved meanwhile.
+     */
+    public static class OutcomeUnknownException extends RuntimeException {
+        public OutcomeUnknownException(String orderId, Throwable cause) {
+            super("Order " + orderId + " may or may not have been written", cause);
+        }
+    }
+
+    public OrderIntakeService(MongoTemplate mongoTemplate,
+                              InventoryService inventoryService,
+                              SalesRollupService salesRollups,
+                              DashboardStreamService dashboardStream,
+                              @Value("${app.orders.intake.queue-capacity:5000}") int queueCapacity,
+                              @Value("${app.orders.intake.batch-size:256}") int batchSize,
+                              @Value("${app.orders.intake.max-batch-delay-ms:5}") long maxBatchDelayMs,
+                              @Value("${app.orders.intake.ack-timeout-ms:3000}") long ackTimeoutMs,
+                              @Value("${app.orders.intake.max-attempts:3}") int maxAttempts) {
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryService = inventoryService;
+        this.salesRollups = salesRollups;
+        this.dashboardStream = dashboardStream;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMs);
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues the order for the next group commit. The id is assigned here so
+     * the caller can answer with it even before the write is acknowledged.
+     *
+     * @throws RejectedExecutionException when the intake queue is full
+     */
+    public CompletableFuture<Order> submit(Order order) {
+        if (order.getId() == null) {
+            order.setId(new ObjectId().toHexString());
+        }
+        Pending pending = new Pending(order, new CompletableFuture<>());
+        unacked.put(order.getId(), pending.ack());
+        if (!running || !queue.offer(pending)) {
+            unacked.remove(order.getId());
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Order intake queue is full");
+        }
+        return pending.ack();
+    }
+
+    /**
+     * The acknowledgement of an order still queued on this node, for callers
+     * that stopped waiting for it; empty once it completed.
+     */
+    public Optional<CompletableFuture<Order>> pending(String orderId) {
+        return Optional.ofNullable(unacked.get(orderId));
+    }
+
+    public long ackTimeoutMs() {
+        return ackTimeoutMs;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("queueDepth", queue.size());
+        res.put("queueRemaining", queue.remainingCapacity());
+        res.put("batches", batches.get());
+        res.put("ordersWritten", written.get());
+        res.put("ordersFailed", failed.get());
+        res.put("ordersRejected", rejected.get());
+        return res;
+    }
+
+    // ---------- writer ----------
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) continue;
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) break;
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Order intake writer failed on a batch of {}", batch.size(), e);
+                batch.forEach(p -> fail(p, e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) throws InterruptedException {
+        MongoCollection<Document> orders = mongoTemplate
+                .getCollection(mongoTemplate.getCollectionName(Order.class))
+                .withWriteConcern(WriteConcern.MAJORITY.withJournal(true));
+
+        List<Order> placed = new ArrayList<>(batch.size());
+        try {
+            insert(orders, batch, placed);
+        } finally {
+            recordSales(placed);
+            dashboardStream.ordersPlaced(placed);
+        }
+    }
+
+    private void insert(MongoCollection<Document> orders, List<Pending> batch, List<Order> placed)
+            throws InterruptedException {
+        List<Pending> remaining = batch;
+        for (int attempt = 1; !remaining.isEmpty(); attempt++) {
+            List<Document> docs = new ArrayList<>(remaining.size());
+            for (Pending p : remaining) {
+                Document doc = new Document();
+                mongoTemplate.getConverter().write(p.order(), doc);
+                docs.add(doc);
+            }
+
+            try {
+                orders.insertMany(docs, new InsertManyOptions().ordered(false));
+                remaining.forEach(p -> ack(p, placed));
+                remaining = List.of();
+            } catch (MongoBulkWriteException e) {
+                // unordered: everything not listed in the write errors made it in
+                Map<Integer, BulkWriteError> errors = new HashMap<>();
+                e.getWriteErrors().forEach(err -> errors.put(err.getIndex(), err));
+                boolean unconfirmed = e.getWriteConcernError() != null && attempt < maxAttempts;
+
+                List<Pending> retry = new ArrayList<>();
+                for (int i = 0; i < remaining.size(); i++) {
+                    BulkWriteError err = errors.get(i);
+                    if (err != null && err.getCode() != DUPLICATE_KEY) {
+                        fail(remaining.get(i), e);
+                    } else if (err == null && unconfirmed) {
+                        // written but not yet majority-acknowledged: insert again,
+                        // a duplicate _id on the retry confirms it
+                        retry.add(remaining.get(i));
+                    } else {
+                        ack(remaining.get(i), placed);
+                    }
+                }
+                remaining = retry;
+                if (!retry.isEmpty()) {
+                    log.warn("Write concern not satisfied for {} orders (attempt {}/{}), retrying",
+                            retry.size(), attempt, maxAttempts);
+                    Thread.sleep(50L * attempt);
+                }
+            } catch (MongoException e) {
+                if (attempt >= maxAttempts) {
+                    // some inserts may have landed before the error: only the missing ones failed
+                    Set<String> stored = storedIds(orders, remaining);
+                    for (Pending p : remaining) {
+                        if (stored == null) failKeepingStock(p, e);
+                        else if (stored.contains(p.order().getId())) ack(p, placed);
+                        else fail(p, e);
+                    }
+                    return;
+                }
+                log.warn("Order batch insert failed (attempt {}/{}), retrying", attempt, maxAttempts, e);
+                Thread.sleep(50L * attempt);
+            }
+        }
+        batches.incrementAndGet();
+    }
+
+    // ids of the batch's orders that are in Mongo; null if that can't be read either
+    private Set<String> storedIds(MongoCollection<Document> orders, List<Pending> batch) {
+        List<ObjectId> ids = batch.stream().map(p -> new ObjectId(p.order().getId())).toList();
+        Set<String> res = new HashSet<>();
+        try {
+            orders.find(Filters.in("_id", ids))
+                    .projection(Projections.include("_id"))
+                    .forEach(d -> res.add(d.getObjectId("_id").toHexString()));
+            return res;
+        } catch (MongoException e) {
+            log.error("Could not check which of {} orders were written", batch.size(), e);
+            return null;
+        }
+    }
+
+    private void ack(Pending p, List<Order> placed) {
+        written.incrementAndGet();
+        placed.add(p.order());
+        unacked.remove(p.order().getId());
+        p.ack().complete(p.order());
+    }
+
+    // the orders are durable already; a failed rollup is fixed by the nightly reconcile
+    private void recordSales(List<Order> placed) {
+        if (placed.isEmpty()) return;
+        try {
+            salesRollups.recordPlaced(placed);
+        } catch (RuntimeException e) {
+            log.warn("Could not update sales rollups for {} orders", placed.size(), e);
+        }
+    }
+
+    // may or may not be in Mongo: keep the stock rather than oversell, and tell the
+    // caller the outcome is unknown rather than failed so it doesn't place it again
+    private void failKeepingStock(Pending p, Exception cause) {
+        log.error("Order {} is in an unknown state, its stock stays reserved", p.order().getId());
+        failed.incrementAndGet();
+        unacked.remove(p.order().getId());
+        p.ack().completeExceptionally(new OutcomeUnknownException(p.order().getId(), cause));
+    }
+
+    // never made it to Mongo: give the stock back and fail the waiting request
+    private void fail(Pending p, Exception cause) {
+        if (p.ack().isDone()) return;
+        failed.incrementAndGet();
+        try {
+            inventoryService.release(p.order().getItems());
+        } catch (RuntimeException e) {
+            log.error("Could not release stock for unwritten order {}", p.order().getId(), e);
+        }
+        unacked.remove(p.order().getId());
+        p.ack().completeExceptionally(cause);
+    }
+}
@@ -0,0 +1,224 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderEvent;
+import com.shop.commerce_api.entity.OrderStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox for order status changes. The admin request only writes the event;
+ * notifications and the live dashboard get it from a background dispatcher,
+ * in batches, at least once.
+ * <p>
+ * Without multi-document transactions the event can't share a write with the
+ * order, so it brackets it: {@link #prepare} stores it as PREPARED before the
+ * status write and {@link #commit} marks it READY after. If the process dies
+ * in between, {@link #recover} finds the PREPARED event later and keeps it
+ * only if the order did reach the new status.
+ * <p>
+ * Dispatchers claim a batch with a lease, hand it to every
+ * {@link OrderEventSink} and delete it. A failed batch is retried once the
+ * lease runs out, and parked as FAILED after {@code max-attempts}.
+ */
+@Service
+public class OrderOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final List<OrderEventSink> sinks;
+    private final int batchSize;
+    private final int maxBatches;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration prepareGrace;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private volatile Instant lastDispatch;
+    private volatile long lastLagMs;
+
+    public OrderOutboxService(MongoTemplate mongoTemplate,
+                              List<OrderEventSink> sinks,
+                              @Value("${app.outbox.batch-size:200}") int batchSize,
+                              @Value("${app.outbox.max-batches:10}") int maxBatches,
+                              @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                              @Value("${app.outbox.lease-ms:30000}") long leaseMs,
+                              @Value("${app.outbox.prepare-grace-ms:60000}") long prepareGraceMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.prepareGrace = Duration.ofMillis(prepareGraceMs);
+    }
+
+    // ---------- write path ----------
+
+    /** Stores one PREPARED event per order, before their status is written. */
+    public List<OrderEvent> prepare(List<Order> orders, Map<String, OrderStatus> previous, OrderStatus to) {
+        Instant now = Instant.now();
+        List<OrderEvent> events = orders.stream()
+                .map(o -> OrderEvent.builder()
+                        .orderId(o.getId())
+                        .userEmail(o.getEmail())
+                        .from(previous.get(o.getId()))
+                        .to(to)
+                        .state(OrderEvent.State.PREPARED)
+                        .createdAt(now)
+                        .build())
+                .toList();
+        return new ArrayList<>(mongoTemplate.insertAll(events));
+    }
+
+    /** Releases the events to the dispatcher once the status write has succeeded. */
+    public void commit(List<OrderEvent> events) {
+        if (events.isEmpty()) return;
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(idsOf(events)).and("state").is(OrderEvent.State.PREPARED)),
+                Update.update("state", OrderEvent.State.READY),
+                OrderEvent.class);
+    }
+
+    /** Drops events whose status write didn't happen. */
+    public void discard(List<OrderEvent> events) {
+        if (events.isEmpty()) return;
+        mongoTemplate.remove(
+                Query.query(Criteria.where("_id").in(idsOf(events)).and("state").is(OrderEvent.State.PREPARED)),
+                OrderEvent.class);
+    }
+
+    // ---------- dispatch ----------
+
+    @Scheduled(fixedDelayString = "${app.outbox.dispatch-ms:500}")
+    public void dispatch() {
+        for (int i = 0; i < maxBatches; i++) {
+            List<OrderEvent> batch = claim();
+            if (batch.isEmpty()) break;
+            deliver(batch);
+            if (batch.size() < batchSize) break;
+        }
+        lastDispatch = Instant.now();
+    }
+
+    // oldest READY events not leased by someone else, leased to us under a fresh claim token
+    private List<OrderEvent> claim() {
+        Instant now = Instant.now();
+        Criteria available = Criteria.where("state").is(OrderEvent.State.READY)
+                .orOperator(Criteria.where("leaseUntil").is(null), Criteria.where("leaseUntil").lt(now));
+
+        Query candidates = Query.query(available).with(Sort.by("createdAt")).limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> ids = idsOf(mongoTemplate.find(candidates, OrderEvent.class));
+        if (ids.isEmpty()) return List.of();
+
+        String claim = UUID.randomUUID().toString();
+        Criteria stillAvailable = Criteria.where("_id").in(ids).and("state").is(OrderEvent.State.READY)
+                .orOperator(Criteria.where("leaseUntil").is(null), Criteria.where("leaseUntil").lt(now));
+        mongoTemplate.updateMulti(Query.query(stillAvailable),
+                Update.update("claim", claim).set("leaseUntil", now.plus(lease)),
+                OrderEvent.class);
+
+        return mongoTemplate.find(Query.query(Criteria.where("claim").is(claim)).with(Sort.by("createdAt")),
+                OrderEvent.class);
+    }
+
+    private void deliver(List<OrderEvent> batch) {
+        lastLagMs = Duration.between(batch.get(0).getCreatedAt(), Instant.now()).toMillis();
+        List<String> ids = idsOf(batch);
+        try {
+            for (OrderEventSink sink : sinks) {
+                sink.deliver(batch);
+            }
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            log.warn("Outbox batch of {} failed, will retry: {}", batch.size(), e.toString());
+            // the lease stays, so the retry waits for it to run out
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                    new Update().inc("attempts", 1).set("lastError", String.valueOf(e.getMessage())),
+                    OrderEvent.class);
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("_id").in(ids).and("attempts").gte(maxAttempts)),
+                    Update.update("state", OrderEvent.State.FAILED).unset("claim").unset("leaseUntil"),
+                    OrderEvent.class);
+            return;
+        }
+
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), OrderEvent.class);
+        delivered.addAndGet(batch.size());
+    }
+
+    // ---------- recovery ----------
+
+    /**
+     * PREPARED events older than the grace period lost their commit: the
+     * process died or the status write failed. Release those whose order has
+     * the new status and drop the rest.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.recover-ms:60000}")
+    public void recover() {
+        Query stale = Query.query(Criteria.where("state").is(OrderEvent.State.PREPARED)
+                        .and("createdAt").lt(Instant.now().minus(prepareGrace)))
+                .with(Sort.by("createdAt"))
+                .limit(batchSize);
+        List<OrderEvent> events = mongoTemplate.find(stale, OrderEvent.class);
+        if (events.isEmpty()) return;
+
+        Query ordersQuery = Query.query(Criteria.where("_id").in(events.stream().map(OrderEvent::getOrderId).toList()));
+        ordersQuery.fields().include("status");
+        Map<String, OrderStatus> statuses = mongoTemplate.find(ordersQuery, Order.class).stream()
+                .collect(Collectors.toMap(Order::getId, Order::getStatus));
+
+        Map<Boolean, List<OrderEvent>> happened = events.stream()
+                .collect(Collectors.partitioningBy(e -> e.getTo() == statuses.get(e.getOrderId())));
+        commit(happened.get(true));
+        discard(happened.get(false));
+        recovered.addAndGet(happened.get(true).size());
+        discarded.addAndGet(happened.get(false).size());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        for (OrderEvent.State state : OrderEvent.State.values()) {
+            res.put(state.name().toLowerCase(Locale.ROOT),
+                    mongoTemplate.count(Query.query(Criteria.where("state").is(state)), OrderEvent.class));
+        }
+
+        // age of the oldest event still waiting: how far the dispatcher is behind
+        Query oldest = Query.query(Criteria.where("state").is(OrderEvent.State.READY))
+                .with(Sort.by("createdAt")).limit(1);
+        OrderEvent head = mongoTemplate.findOne(oldest, OrderEvent.class);
+        res.put("lagMs", head != null ? Duration.between(head.getCreatedAt(), Instant.now()).toMillis() : 0);
+        res.put("lastBatchLagMs", lastLagMs);
+        res.put("delivered", delivered.get());
+        res.put("failedBatches", failedBatches.get());
+        res.put("recovered", recovered.get());
+        res.put("discarded", discarded.get());
+        res.put("lastDispatch", lastDispatch);
+        res.put("sinks", sinks.stream().map(s -> ClassUtils.getUserClass(s).getSimpleName()).toList());
+        return res;
+    }
+
+    private static List<String> idsOf(List<OrderEvent> events) {
+        return events.stream().map(OrderEvent::getId).toList();
+    }
+}
@@ -0,0 +1,147 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.dto.CursorPage;
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Admin order search: filters run in Mongo and pages are keyset-paginated on
+ * (sort field, _id), so a page costs the same however deep it is and nothing
+ * is counted.
+ * <p>
+ * Each filter has an index that leads with its equality field and ends with
+ * (createdAt, _id): status, email and userId. Date-only searches use the
+ * (createdAt, _id) index and total sorts the (total, _id) one.
+ */
+@Service
+public class OrderSearchService {
+
+    public enum SortField {
+        CREATED_AT("createdAt"),
+        TOTAL("total");
+
+        final String field;
+
+        SortField(String field) {
+            this.field = field;
+        }
+    }
+
+    /** All filters are optional; {@code from} is inclusive, {@code to} exclusive. */
+    public record Filter(
+            OrderStatus status,
+            Instant from,
+            Instant to,
+            String email,
+            String userId,
+            Double minTotal,
+            Double maxTotal
+    ) {}
+
+    private final MongoTemplate mongoTemplate;
+
+    public OrderSearchService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * One page of matching orders. {@code cursor} is the {@code nextCursor} of
+     * the previous page (same filter and sort); an unreadable cursor throws
+     * {@link IllegalArgumentException}.
+     */
+    public CursorPage<Order> search(Filter filter, SortField sort, boolean ascending, String cursor, int limit) {
+        List<Order> orders = mongoTemplate.find(query(filter, sort, ascending, cursor, limit + 1), Order.class);
+        if (orders.size() <= limit) {
+            return new CursorPage<>(orders, null);
+        }
+        List<Order> page = orders.subList(0, limit);
+        return new CursorPage<>(page, encodeCursor(sort, page.get(limit - 1)));
+    }
+
+    Query query(Filter filter, SortField sort, boolean ascending, String cursor, int limit) {
+        List<Criteria> and = new ArrayList<>();
+
+        if (filter.status() != null) {
+            and.add(Criteria.where("status").is(filter.status()));
+        }
+        if (filter.email() != null && !filter.email().isBlank()) {
+            and.add(Criteria.where("email").is(filter.email().trim()));
+        }
+        if (filter.userId() != null && !filter.userId().isBlank()) {
+            and.add(Criteria.where("userId").is(filter.userId().trim()));
+        }
+        if (filter.from() != null || filter.to() != null) {
+            Criteria createdAt = Criteria.where("createdAt");
+            if (filter.from() != null) createdAt.gte(filter.from());
+            if (filter.to() != null) createdAt.lt(filter.to());
+            and.add(createdAt);
+        }
+        if (filter.minTotal() != null || filter.maxTotal() != null) {
+            Criteria total = Criteria.where("total");
+            if (filter.minTotal() != null) total.gte(filter.minTotal());
+            if (filter.maxTotal() != null) total.lte(filter.maxTotal());
+            and.add(total);
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            and.add(after(sort, ascending, decodeCursor(sort, cursor)));
+        }
+
+        Query query = new Query();
+        if (!and.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(and));
+        }
+        Sort.Direction dir = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return query.with(Sort.by(dir, sort.field).and(Sort.by(dir, "_id"))).limit(limit);
+    }
+
+    /** A decoded cursor: the sort value (Instant or Double) and id of the last row shown. */
+    record Cursor(Object value, String id) {}
+
+    static Cursor decodeCursor(SortField sort, String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int sep = raw.indexOf(':');
+        if (sep < 0) throw new IllegalArgumentException("Invalid cursor");
+
+        Object value;
+        try {
+            value = sort == SortField.CREATED_AT
+                    ? Instant.ofEpochMilli(Long.parseLong(raw.substring(0, sep)))
+                    : Double.parseDouble(raw.substring(0, sep));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new Cursor(value, raw.substring(sep + 1));
+    }
+
+    // rows strictly past the cursor's (value, id) in sort order
+    static Criteria after(SortField sort, boolean ascending, Cursor cursor) {
+        Object value = cursor.value();
+        Criteria past = ascending ? Criteria.where(sort.field).gt(value) : Criteria.where(sort.field).lt(value);
+        Criteria tie = ascending ? Criteria.where("_id").gt(cursor.id()) : Criteria.where("_id").lt(cursor.id());
+        return new Criteria().orOperator(past, Criteria.where(sort.field).is(value).andOperator(tie));
+    }
+
+    static String encodeCursor(SortField sort, Order last) {
+        String value = sort == SortField.CREATED_AT
+                ? String.valueOf(last.getCreatedAt() != null ? last.getCreatedAt().toEpochMilli() : 0)
+                : String.valueOf(last.getTotal());
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + ":" + last.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,216 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.dto.StockReservationResult;
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderEvent;
+import com.shop.commerce_api.entity.OrderItem;
+import com.shop.commerce_api.entity.OrderStatus;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Moves many orders to one status at once (fulfilment batches), in a fixed
+ * number of round trips whatever the batch size: one read of the orders, one
+ * stock reservation or release covering all of them (one {@code $inc} per
+ * product), one bulk write of the statuses and two outbox writes, from which
+ * notifications and the live dashboard are fed.
+ * <p>
+ * If the combined reservation falls short, the orders are retried one by
+ * one so only those that can't be covered are refused.
+ * <p>
+ * Each status write only applies if the order still has the status and
+ * reservation it was read with. An order someone else changed in between
+ * comes back as CONFLICT: stock reserved for it is given back, its event is
+ * dropped and it isn't counted in the rollups. Stock of cancelled orders is
+ * released only after their write went through; stock reserved for orders
+ * whose write failed is given back before the error is rethrown.
+ */
+@Service
+public class OrderStatusService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusService.class);
+
+    public enum Outcome { UPDATED, UNCHANGED, NOT_FOUND, INSUFFICIENT_STOCK, CONFLICT }
+
+    // status writes remembered on each order, see writeStatuses
+    private static final int KEEP_TRANSITIONS = 5;
+
+    public record Result(
+            String id,
+            Outcome outcome,
+            OrderStatus from,
+            StockReservationResult stock // only for INSUFFICIENT_STOCK
+    ) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final InventoryService inventoryService;
+    private final OrderOutboxService outbox;
+    private final SalesRollupService salesRollups;
+    private final ProductSalesService productSales;
+
+    public OrderStatusService(MongoTemplate mongoTemplate,
+                              InventoryService inventoryService,
+                              OrderOutboxService outbox,
+                              SalesRollupService salesRollups,
+                              ProductSalesService productSales) {
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryService = inventoryService;
+        this.outbox = outbox;
+        this.salesRollups = salesRollups;
+        this.productSales = productSales;
+    }
+
+    /** One result per distinct id, in request order. */
+    public List<Result> transition(List<String> ids, OrderStatus to) {
+        List<String> unique = ids.stream().distinct().toList();
+        Map<String, Order> orders = mongoTemplate.find(Query.query(Criteria.where("_id").in(unique)), Order.class)
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        Map<String, Result> refused = new HashMap<>();
+        List<Order> changing = new ArrayList<>();
+        List<Order> toReserve = new ArrayList<>();
+        List<Order> toRelease = new ArrayList<>();
+        for (String id : unique) {
+            Order o = orders.get(id);
+            if (o == null) {
+                refused.put(id, new Result(id, Outcome.NOT_FOUND, null, null));
+            } else if (o.getStatus() == to) {
+                refused.put(id, new Result(id, Outcome.UNCHANGED, to, null));
+            } else {
+                // placing reserves stock; older orders are reserved here, cancelling gives it back
+                if (to != OrderStatus.CANCELLED && !o.isStockReserved()) toReserve.add(o);
+                else if (to == OrderStatus.CANCELLED && o.isStockReserved()) toRelease.add(o);
+                changing.add(o);
+            }
+        }
+
+        if (!toReserve.isEmpty() && !inventoryService.reserve(itemsOf(toReserve)).reserved()) {
+            for (Order o : toReserve) {
+                StockReservationResult r = inventoryService.reserve(o.getItems());
+                if (!r.reserved()) {
+                    refused.put(o.getId(), new Result(o.getId(), Outcome.INSUFFICIENT_STOCK, o.getStatus(), r));
+                }
+            }
+            toReserve.removeIf(o -> refused.containsKey(o.getId()));
+            changing.removeIf(o -> refused.containsKey(o.getId()));
+        }
+        Map<String, OrderStatus> previous = new HashMap<>();
+        changing.forEach(o -> previous.put(o.getId(), o.getStatus()));
+        if (!changing.isEmpty()) {
+            String writeId = new ObjectId().toHexString();
+            List<OrderEvent> events;
+            Set<String> lost;
+            try {
+                events = outbox.prepare(changing, previous, to);
+                lost = writeStatuses(writeId, changing, idsOf(toReserve), idsOf(toRelease), to);
+            } catch (RuntimeException e) {
+                releaseUnwritten(toReserve, writeId, e);
+                throw e;
+            }
+
+            if (!lost.isEmpty()) {
+                List<Order> reservedForLost = toReserve.stream().filter(o -> lost.contains(o.getId())).toList();
+                if (!reservedForLost.isEmpty()) {
+                    inventoryService.release(itemsOf(reservedForLost));
+                }
+                outbox.discard(events.stream().filter(e -> lost.contains(e.getOrderId())).toList());
+                events.removeIf(e -> lost.contains(e.getOrderId()));
+                changing.removeIf(o -> lost.contains(o.getId()));
+                toRelease.removeIf(o -> lost.contains(o.getId()));
+                lost.forEach(id -> refused.put(id, new Result(id, Outcome.CONFLICT, previous.get(id), null)));
+            }
+            if (!toRelease.isEmpty()) {
+                inventoryService.release(itemsOf(toRelease));
+            }
+            outbox.commit(events);
+
+            // counters stay in the write path: a redelivered $inc would count twice
+            salesRollups.recordStatusChanges(changing, previous, to);
+            productSales.recordStatusChanges(changing, previous, to);
+        }
+
+        return unique.stream()
+                .map(id -> refused.getOrDefault(id, new Result(id, Outcome.UPDATED, previous.get(id), null)))
+                .toList();
+    }
+
+    /**
+     * One conditional updateOne per order, in one bulk, each tagged with this
+     * write's id. When fewer than all match, the orders carrying the id are
+     * the ones written; the ids of the others are returned.
+     */
+    private Set<String> writeStatuses(String writeId, List<Order> changing, Set<String> reserving, Set<String> releasing,
+                                      OrderStatus to) {
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        for (Order o : changing) {
+            Criteria unchanged = Criteria.where("_id").is(o.getId()).and("status").is(o.getStatus());
+            // orders from before reservation existed have no stockReserved at all
+            unchanged = o.isStockReserved()
+                    ? unchanged.and("stockReserved").is(true)
+                    : unchanged.and("stockReserved").ne(true);
+
+            Update update = Update.update("status", to);
+            if (reserving.contains(o.getId())) update.set("stockReserved", true);
+            if (releasing.contains(o.getId())) update.set("stockReserved", false);
+            update.push("transitions").slice(-KEEP_TRANSITIONS).each(writeId);
+            ops.updateOne(Query.query(unchanged), update);
+        }
+
+        Set<String> lost = new HashSet<>();
+        if (ops.execute().getMatchedCount() < changing.size()) {
+            Query written = Query.query(Criteria.where("_id").in(idsOf(changing)).and("transitions").is(writeId));
+            written.fields().include("_id");
+            Set<String> ours = idsOf(mongoTemplate.find(written, Order.class));
+            changing.stream().map(Order::getId).filter(id -> !ours.contains(id)).forEach(lost::add);
+        }
+
+        changing.forEach(o -> {
+            if (lost.contains(o.getId())) return;
+            o.setStatus(to);
+            if (reserving.contains(o.getId())) o.setStockReserved(true);
+            if (releasing.contains(o.getId())) o.setStockReserved(false);
+        });
+        return lost;
+    }
+
+    // the write failed part way: orders not carrying writeId never took the stock reserved for them
+    private void releaseUnwritten(List<Order> reserved, String writeId, RuntimeException cause) {
+        if (reserved.isEmpty()) return;
+        try {
+            Query written = Query.query(Criteria.where("_id").in(idsOf(reserved)).and("transitions").is(writeId));
+            written.fields().include("_id");
+            Set<String> ours = idsOf(mongoTemplate.find(written, Order.class));
+            List<Order> unwritten = reserved.stream().filter(o -> !ours.contains(o.getId())).toList();
+            if (!unwritten.isEmpty()) {
+                inventoryService.release(itemsOf(unwritten));
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not give back stock reserved for {} orders after a failed status write",
+                    reserved.size(), e);
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static List<OrderItem> itemsOf(List<Order> orders) {
+        return orders.stream()
+                .filter(o -> o.getItems() != null)
+                .flatMap(o -> o.getItems().stream())
+                .toList();
+    }
+
+    private static Set<String> idsOf(List<Order> orders) {
+        return orders.stream().map(Order::getId).collect(Collectors.toCollection(HashSet::new));
+    }
+}
@@ -0,0 +1,376 @@
+package com.shop.commerce_api.service;
+
+import com.mongodb.ReadPreference;
+import com.shop.commerce_api.entity.Category;
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderItem;
+import com.shop.commerce_api.entity.OrderStatus;
+import com.shop.commerce_api.entity.Product;
+import com.shop.commerce_api.entity.ProductSales;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * Maintains the {@link ProductSales} view (sales per product and UTC day)
+ * and answers the product-level dashboard widgets from it.
+ * <p>
+ * A watermark in {@code view_watermarks} records how far the orders have
+ * been folded in. Each refresh takes the orders past it in chunks of at most
+ * {@code chunk-orders}, and each chunk is one {@code $merge} pipeline that
+ * adds its figures to the existing rows server-side. The watermark is moved
+ * before the chunk is merged, so two nodes never merge the same chunk; a
+ * failed merge moves it back. Orders younger than {@code lag-ms} are left for
+ * the next run, so a write that commits late is not skipped.
+ * <p>
+ * Cancelling (or un-cancelling) an already merged order is applied directly,
+ * and a nightly rebuild of the last days corrects any drift.
+ */
+@Service
+public class ProductSalesService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSalesService.class);
+
+    private static final String VIEW = "product_sales";
+    private static final String WATERMARKS = "view_watermarks";
+
+    public record TopProduct(String productId, String title, long units, double revenue, long orders) {}
+
+    public record CategoryRevenue(String categoryId, String name, double revenue, long units) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final int chunkOrders;
+    private final int maxChunks;
+    private final Duration lag;
+
+    public ProductSalesService(MongoTemplate mongoTemplate,
+                               @Value("${app.analytics.product-sales.chunk-orders:2000}") int chunkOrders,
+                               @Value("${app.analytics.product-sales.max-chunks:20}") int maxChunks,
+                               @Value("${app.analytics.product-sales.lag-ms:30000}") long lagMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.chunkOrders = chunkOrders;
+        this.maxChunks = maxChunks;
+        this.lag = Duration.ofMillis(lagMs);
+    }
+
+    // ---------- refresh ----------
+
+    @Scheduled(initialDelayString = "${app.analytics.product-sales.refresh-ms:60000}",
+            fixedDelayString = "${app.analytics.product-sales.refresh-ms:60000}")
+    public void refresh() {
+        Instant safeEnd = Instant.now().minus(lag);
+        for (int i = 0; i < maxChunks; i++) {
+            Instant from = watermark();
+            if (!from.isBefore(safeEnd)) return;
+
+            Instant to = chunkEnd(from, safeEnd);
+            // claimed by another node in the meantime: it merges this chunk
+            if (!moveWatermark(from, to)) return;
+
+            try {
+                merge(from, to, null);
+            } catch (RuntimeException e) {
+                moveWatermark(to, from);
+                log.warn("Product sales refresh failed for [{}, {}), will retry", from, to, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Recomputes UTC days {@code from}..{@code to} (inclusive) from the orders,
+     * replacing their rows. Days the watermark hasn't fully passed are left to
+     * the incremental refresh. Returns the number of days rebuilt.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        LocalDate lastFullDay = LocalDate.ofInstant(watermark(), ZoneOffset.UTC).minusDays(1);
+        if (to.isAfter(lastFullDay)) to = lastFullDay;
+        if (from.isAfter(to)) return 0;
+
+        String token = new ObjectId().toHexString();
+        merge(from.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant(), token);
+
+        // rows this rebuild didn't rewrite: products with no (uncancelled) sales left that day
+        mongoTemplate.remove(Query.query(Criteria.where("day").gte(from.toString()).lte(to.toString())
+                .and("rebuild").ne(token)), ProductSales.class);
+        return (int) (to.toEpochDay() - from.toEpochDay() + 1);
+    }
+
+    @Scheduled(cron = "${app.analytics.product-sales.reconcile-cron:0 30 0 * * *}", zone = "UTC")
+    public void reconcile() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        int days = rebuild(today.minusDays(2), today.minusDays(1));
+        log.info("Product sales rebuilt for {} days", days);
+    }
+
+    /** Keeps merged orders in step when they are cancelled or restored; one bulk write. */
+    public void recordStatusChanges(List<Order> orders, Map<String, OrderStatus> previous, OrderStatus to) {
+        boolean counted = to != OrderStatus.CANCELLED;
+        List<Order> flipped = orders.stream()
+                .filter(o -> o.getCreatedAt() != null && o.getItems() != null)
+                .filter(o -> (previous.get(o.getId()) != OrderStatus.CANCELLED) != counted)
+                .toList();
+        if (flipped.isEmpty()) return;
+
+        // not merged yet: the refresh will read the new status
+        Document mark = mongoTemplate.findById(VIEW, Document.class, WATERMARKS);
+        if (mark == null) return;
+        Instant upTo = mark.getDate("upTo").toInstant();
+
+        // one row update per (product, day), however many orders and lines share it
+        int sign = counted ? 1 : -1;
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (Order o : flipped) {
+            if (!o.getCreatedAt().isBefore(upTo)) continue;
+            String day = LocalDate.ofInstant(o.getCreatedAt(), ZoneOffset.UTC).toString();
+            Set<String> seen = new HashSet<>();
+            for (OrderItem item : o.getItems()) {
+                if (item.getProductId() == null) continue;
+                Row row = rows.computeIfAbsent(item.getProductId() + "|" + day,
+                        id -> new Row(item.getProductId(), day, item.getTitle()));
+                if (seen.add(item.getProductId())) row.orders++;
+                row.units += item.getQuantity();
+                row.revenue += item.getPrice() * item.getQuantity();
+            }
+        }
+        if (rows.isEmpty()) return;
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductSales.class);
+        rows.forEach((id, row) -> {
+            Update update = new Update()
+                    .inc("orders", sign * row.orders)
+                    .inc("units", sign * row.units)
+                    .inc("revenue", sign * row.revenue);
+            Query query = Query.query(Criteria.where("_id").is(id));
+            if (counted) {
+                ops.upsert(query, update.setOnInsert("productId", row.productId)
+                        .setOnInsert("day", row.day)
+                        .setOnInsert("title", row.title));
+            } else {
+                ops.updateOne(query, update);
+            }
+        });
+        ops.execute();
+    }
+
+    private static final class Row {
+        final String productId;
+        final String day;
+        final String title;
+        long orders;
+        long units;
+        double revenue;
+
+        Row(String productId, String day, String title) {
+            this.productId = productId;
+            this.day = day;
+            this.title = title;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Document mark = mongoTemplate.findById(VIEW, Document.class, WATERMARKS);
+        Map<String, Object> res = new LinkedHashMap<>();
+        if (mark != null) {
+            Instant upTo = mark.getDate("upTo").toInstant();
+            res.put("watermark", upTo);
+            res.put("lagSeconds", Duration.between(upTo, Instant.now()).toSeconds());
+        }
+        res.put("rows", mongoTemplate.estimatedCount(ProductSales.class));
+        return res;
+    }
+
+    // ---------- reads ----------
+
+    /** Best sellers over UTC days {@code from}..{@code to} (inclusive), by revenue or units. */
+    public List<TopProduct> topProducts(LocalDate from, LocalDate to, int limit, boolean byUnits) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(inDays(from, to)),
+                Aggregation.group("productId")
+                        .last("title").as("title")
+                        .sum("units").as("units")
+                        .sum("revenue").as("revenue")
+                        .sum("orders").as("orders"),
+                Aggregation.sort(Sort.Direction.DESC, byUnits ? "units" : "revenue"),
+                Aggregation.limit(limit)
+        ).withOptions(readOptions());
+
+        return mongoTemplate.aggregate(agg, VIEW, Document.class).getMappedResults().stream()
+                .map(row -> new TopProduct(
+                        row.getString("_id"),
+                        row.getString("title"),
+                        ((Number) row.get("units")).longValue(),
+                        ((Number) row.get("revenue")).doubleValue(),
+                        ((Number) row.get("orders")).longValue()))
+                .toList();
+    }
+
+    /**
+     * Revenue per category over UTC days {@code from}..{@code to} (inclusive).
+     * Products are attributed to their current category.
+     */
+    public List<CategoryRevenue> revenueByCategory(LocalDate from, LocalDate to) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(inDays(from, to)),
+                Aggregation.group("productId")
+                        .sum("units").as("units")
+                        .sum("revenue").as("revenue")
+        ).withOptions(readOptions());
+        List<Document> rows = mongoTemplate.aggregate(agg, VIEW, Document.class).getMappedResults();
+        if (rows.isEmpty()) return List.of();
+
+        // categories of just the products sold, in one query
+        Query products = Query.query(Criteria.where("_id").in(rows.stream().map(r -> r.getString("_id")).toList()));
+        products.fields().include("category");
+        Map<String, String> categoryOf = new HashMap<>();
+        for (Product p : mongoTemplate.find(products, Product.class)) {
+            if (p.getCategory() != null) categoryOf.put(p.getId(), p.getCategory());
+        }
+
+        Map<String, double[]> totals = new HashMap<>(); // categoryId -> {revenue, units}
+        for (Document row : rows) {
+            double[] t = totals.computeIfAbsent(categoryOf.get(row.getString("_id")), c -> new double[2]);
+            t[0] += ((Number) row.get("revenue")).doubleValue();
+            t[1] += ((Number) row.get("units")).longValue();
+        }
+
+        Query categories = Query.query(Criteria.where("_id").in(categoryOf.values().stream().distinct().toList()));
+        categories.fields().include("name");
+        Map<String, String> names = new HashMap<>();
+        mongoTemplate.find(categories, Category.class).forEach(c -> names.put(c.getId(), c.getName()));
+
+        // products without a (surviving) category are grouped under a null id
+        List<CategoryRevenue> res = new ArrayList<>();
+        totals.forEach((id, t) -> res.add(new CategoryRevenue(id, id != null ? names.get(id) : null, t[0], (long) t[1])));
+        res.sort(Comparator.comparingDouble(CategoryRevenue::revenue).reversed());
+        return res;
+    }
+
+    // ---------- internals ----------
+
+    private static Criteria inDays(LocalDate from, LocalDate to) {
+        return Criteria.where("day").gte(from.toString()).lte(to.toString());
+    }
+
+    // dashboards tolerate a slightly stale view; keep these reads off the primary
+    private static AggregationOptions readOptions() {
+        return AggregationOptions.builder()
+                .readPreference(ReadPreference.secondaryPreferred())
+                .maxTime(Duration.ofSeconds(10))
+                .build();
+    }
+
+    private Instant watermark() {
+        Document mark = mongoTemplate.findById(VIEW, Document.class, WATERMARKS);
+        if (mark != null) return mark.getDate("upTo").toInstant();
+
+        // first run: start at the oldest order and catch up chunk by chunk
+        Query oldest = Query.query(Criteria.where("createdAt").ne(null))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt")).limit(1);
+        oldest.fields().include("createdAt");
+        Order first = mongoTemplate.findOne(oldest, Order.class);
+        Instant start = first != null ? first.getCreatedAt() : Instant.now().minus(lag);
+        try {
+            mongoTemplate.insert(new Document("_id", VIEW).append("upTo", Date.from(start)), WATERMARKS);
+            return start;
+        } catch (DuplicateKeyException e) {
+            return mongoTemplate.findById(VIEW, Document.class, WATERMARKS).getDate("upTo").toInstant();
+        }
+    }
+
+    private boolean moveWatermark(Instant from, Instant to) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(VIEW).and("upTo").is(Date.from(from))),
+                Update.update("upTo", Date.from(to)),
+                WATERMARKS).getModifiedCount() == 1;
+    }
+
+    // at most chunkOrders orders: the next order's createdAt bounds the chunk (createdAt index)
+    private Instant chunkEnd(Instant from, Instant safeEnd) {
+        Query next = Query.query(Criteria.where("createdAt").gte(from).lt(safeEnd))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .skip(chunkOrders)
+                .limit(1);
+        next.fields().include("createdAt");
+        List<Order> found = mongoTemplate.find(next, Order.class);
+        if (found.isEmpty()) return safeEnd;
+
+        Instant end = found.get(0).getCreatedAt();
+        // a whole chunk within one millisecond: take the millisecond rather than stall
+        return end.isAfter(from) ? end : from.plusMillis(1);
+    }
+
+    /**
+     * Folds orders created in [from, to) into the view. Incremental runs add
+     * to existing rows; rebuilds ({@code rebuild} set) replace them.
+     */
+    private void merge(Instant from, Instant to, String rebuild) {
+        Document row = new Document("_id", new Document("$concat", List.of("$_id.p", "|", "$_id.d")))
+                .append("productId", "$_id.p")
+                .append("day", "$_id.d")
+                .append("title", 1)
+                .append("units", 1)
+                .append("revenue", 1)
+                .append("orders", 1);
+        if (rebuild != null) row.append("rebuild", new Document("$literal", rebuild));
+
+        Object whenMatched = rebuild != null ? "replace" : List.of(new Document("$set", new Document()
+                .append("title", "$$new.title")
+                .append("units", new Document("$add", List.of("$units", "$$new.units")))
+                .append("revenue", new Document("$add", List.of("$revenue", "$$new.revenue")))
+                .append("orders", new Document("$add", List.of("$orders", "$$new.orders")))));
+
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("createdAt").gte(from).lt(to)
+                        .and("status").ne(OrderStatus.CANCELLED)),
+                Aggregation.unwind("items"),
+                stage("$match", new Document("items.productId", new Document("$ne", null))),
+                // per order and product first, so "orders" counts orders rather than lines
+                stage("$group", new Document("_id", new Document()
+                        .append("o", "$_id")
+                        .append("p", "$items.productId")
+                        .append("d", new Document("$dateToString", new Document("format", "%Y-%m-%d").append("date", "$createdAt"))))
+                        .append("title", new Document("$last", "$items.title"))
+                        .append("units", new Document("$sum", "$items.quantity"))
+                        .append("revenue", new Document("$sum", new Document("$multiply", List.of("$items.price", "$items.quantity"))))),
+                stage("$group", new Document("_id", new Document("p", "$_id.p").append("d", "$_id.d"))
+                        .append("title", new Document("$last", "$title"))
+                        .append("units", new Document("$sum", "$units"))
+                        .append("revenue", new Document("$sum", "$revenue"))
+                        .append("orders", new Document("$sum", 1))),
+                stage("$project", row),
+                stage("$merge", new Document("into", VIEW)
+                        .append("on", "_id")
+                        .append("whenMatched", whenMatched)
+                        .append("whenNotMatched", "insert"))
+        ).withOptions(Aggregation.newAggregationOptions()
+                .allowDiskUse(true)
+                .maxTime(Duration.ofMinutes(2))
+                .skipOutput()
+                .build());
+
+        mongoTemplate.aggregate(agg, Order.class, Document.class);
+    }
+
+    private static AggregationOperation stage(String name, Document body) {
+        return context -> new Document(name, body);
+    }
+}
@@ -0,0 +1,321 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderItem;
+import com.shop.commerce_api.entity.OrderStatus;
+import com.shop.commerce_api.entity.SalesDaily;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Maintains {@link SalesDaily} rollups and answers sales charts from them, so
+ * a chart costs one small document per day instead of a scan of the orders.
+ * <p>
+ * Placed orders are added by the intake writer, one bulk upsert per batch;
+ * status changes move an order's figures from the old status to the new one.
+ * A nightly job rebuilds recent days from the orders to correct any drift,
+ * and {@link #backfill} rebuilds arbitrary ranges. Rebuilds stop at yesterday
+ * and only replace a day whose version hasn't moved since they read it, so
+ * increments landing meanwhile are never overwritten.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("HH");
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    private final MongoTemplate mongoTemplate;
+
+    public SalesRollupService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // ---------- incremental updates ----------
+
+    /** Adds newly written orders; increments for the same day share one upsert. */
+    public void recordPlaced(List<Order> orders) {
+        Map<String, Map<String, SalesDaily.Figures>> byDay = new LinkedHashMap<>();
+        for (Order o : orders) {
+            if (o.getCreatedAt() == null || o.getStatus() == null) continue;
+            add(byDay, o, o.getStatus(), 1);
+        }
+        upsert(byDay);
+    }
+
+    /** Moves each order's figures from {@code previous.get(id)} to {@code to} in its creation hour; one upsert per day. */
+    public void recordStatusChanges(List<Order> orders, Map<String, OrderStatus> previous, OrderStatus to) {
+        Map<String, Map<String, SalesDaily.Figures>> byDay = new LinkedHashMap<>();
+        for (Order o : orders) {
+            OrderStatus from = previous.get(o.getId());
+            if (o.getCreatedAt() == null || from == to) continue;
+            if (from != null) add(byDay, o, from, -1);
+            add(byDay, o, to, 1);
+        }
+        upsert(byDay);
+    }
+
+    // summed here first: a second inc() of the same path would replace the first
+    private static void add(Map<String, Map<String, SalesDaily.Figures>> byDay, Order o, OrderStatus status, int sign) {
+        LocalDateTime utc = LocalDateTime.ofInstant(o.getCreatedAt(), ZoneOffset.UTC);
+        SalesDaily.Figures f = byDay.computeIfAbsent(utc.toLocalDate().toString(), d -> new LinkedHashMap<>())
+                .computeIfAbsent("hours." + utc.format(HOUR) + "." + status.name() + ".", p -> new SalesDaily.Figures());
+        f.setRevenue(f.getRevenue() + sign * o.getTotal());
+        f.setOrders(f.getOrders() + sign);
+        f.setUnits(f.getUnits() + sign * units(o));
+    }
+
+    private void upsert(Map<String, Map<String, SalesDaily.Figures>> byDay) {
+        if (byDay.isEmpty()) return;
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesDaily.class);
+        byDay.forEach((day, byPath) -> {
+            Update update = new Update();
+            byPath.forEach((path, f) -> update
+                    .inc(path + "revenue", f.getRevenue())
+                    .inc(path + "orders", f.getOrders())
+                    .inc(path + "units", f.getUnits()));
+            ops.upsert(Query.query(Criteria.where("_id").is(day)), update.inc("version", 1));
+        });
+        ops.execute();
+    }
+
+    // ---------- rebuilds ----------
+
+    /**
+     * Recomputes the rollups of UTC days {@code from}..{@code to} (inclusive)
+     * from the orders, replacing what is stored. Today is left to the
+     * incremental updates. Returns the number of days written.
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        LocalDate lastFullDay = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        if (to.isAfter(lastFullDay)) to = lastFullDay;
+        if (from.isAfter(to)) return 0;
+
+        Map<String, Long> versions = versions(from, to);
+        int written = 0;
+        for (SalesDaily day : aggregate(from, to).values()) {
+            if (replace(day, versions.get(day.getId()))) {
+                written++;
+                continue;
+            }
+            // an increment landed since the versions were read: rebuild just that day again
+            LocalDate d = LocalDate.parse(day.getId());
+            for (int attempt = 2; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+                Long version = versions(d, d).get(day.getId());
+                if (replace(aggregate(d, d).get(day.getId()), version)) {
+                    written++;
+                    break;
+                }
+                if (attempt == MAX_REBUILD_ATTEMPTS) {
+                    log.warn("Sales rollup of {} kept changing, left for the next reconcile", day.getId());
+                }
+            }
+        }
+        return written;
+    }
+
+    // day -> version, for the days stored so far
+    private Map<String, Long> versions(LocalDate from, LocalDate to) {
+        Query query = Query.query(Criteria.where("_id").gte(from.toString()).lte(to.toString()));
+        query.fields().include("version");
+        Map<String, Long> res = new HashMap<>();
+        for (SalesDaily day : mongoTemplate.find(query, SalesDaily.class)) {
+            res.put(day.getId(), day.getVersion());
+        }
+        return res;
+    }
+
+    // inserts a day that wasn't stored, or replaces it if still at the version read
+    private boolean replace(SalesDaily day, Long version) {
+        if (version == null) {
+            try {
+                mongoTemplate.insert(day);
+                return true;
+            } catch (DuplicateKeyException e) {
+                return false; // created by an increment meanwhile
+            }
+        }
+        day.setVersion(version + 1);
+        // days written before versions existed have none, which reads as 0
+        Criteria unchanged = version == 0 ? Criteria.where("version").in(0L, null) : Criteria.where("version").is(version);
+        return mongoTemplate.findAndReplace(
+                Query.query(Criteria.where("_id").is(day.getId()).andOperator(unchanged)), day) != null;
+    }
+
+    private Map<String, SalesDaily> aggregate(LocalDate from, LocalDate to) {
+        Instant start = from.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("createdAt").gte(start).lt(end)),
+                Aggregation.project("total", "status")
+                        .and(DateOperators.dateOf("createdAt").toString("%Y-%m-%d")).as("day")
+                        .and(DateOperators.dateOf("createdAt").hour()).as("hour")
+                        .and(ArithmeticOperators.valueOf("items.quantity").sum()).as("units"),
+                Aggregation.group("day", "hour", "status")
+                        .sum("total").as("revenue")
+                        .count().as("orders")
+                        .sum("units").as("units")
+        ).withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+
+        Map<String, SalesDaily> days = new TreeMap<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            SalesDaily day = new SalesDaily();
+            day.setId(d.toString());
+            days.put(d.toString(), day);
+        }
+        for (Document row : mongoTemplate.aggregate(agg, Order.class, Document.class)) {
+            Document id = (Document) row.get("_id");
+            SalesDaily day = days.get(id.getString("day"));
+            if (day == null || id.get("status") == null) continue;
+            day.getHours()
+                    .computeIfAbsent(String.format("%02d", id.getInteger("hour")), h -> new HashMap<>())
+                    .put(id.getString("status"), new SalesDaily.Figures(
+                            ((Number) row.get("revenue")).doubleValue(),
+                            ((Number) row.get("orders")).longValue(),
+                            ((Number) row.get("units")).longValue()));
+        }
+        return days;
+    }
+
+    // First start with rollups: build them for the whole order history, off the startup path
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (mongoTemplate.estimatedCount(SalesDaily.class) > 0) return;
+
+        Query oldest = new Query().with(Sort.by(Sort.Direction.ASC, "createdAt")).limit(1);
+        oldest.addCriteria(Criteria.where("createdAt").ne(null));
+        oldest.fields().include("createdAt");
+        Order first = mongoTemplate.findOne(oldest, Order.class);
+        if (first == null) return;
+
+        LocalDate from = LocalDate.ofInstant(first.getCreatedAt(), ZoneOffset.UTC);
+        Thread.ofVirtual().name("sales-backfill").start(() -> {
+            try {
+                int days = backfill(from, LocalDate.now(ZoneOffset.UTC));
+                log.info("Sales rollups backfilled for {} days", days);
+            } catch (RuntimeException e) {
+                log.error("Sales rollup backfill failed", e);
+            }
+        });
+    }
+
+    // Catch anything the incremental path missed (a failed rollup write, a lost race)
+    @Scheduled(cron = "${app.sales.reconcile-cron:0 15 0 * * *}", zone = "UTC")
+    public void reconcile() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        int days = backfill(today.minusDays(2), today.minusDays(1));
+        log.info("Sales rollups reconciled for {} days", days);
+    }
+
+    // ---------- reads ----------
+
+    /**
+     * Sales between local dates {@code from} and {@code to} (inclusive) in
+     * {@code zone}, one point per day, week (starting Monday) or month.
+     * Hours are attributed to the local day they start in, so zones with a
+     * non-whole-hour offset are approximate at day boundaries.
+     */
+    public Map<String, Object> series(LocalDate from, LocalDate to, Granularity granularity, ZoneId zone) {
+        Instant start = from.atStartOfDay(zone).toInstant();
+        Instant end = to.plusDays(1).atStartOfDay(zone).toInstant();
+
+        // every bucket appears, even without sales
+        Map<LocalDate, Point> points = new LinkedHashMap<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            points.computeIfAbsent(bucketOf(d, granularity), b -> new Point());
+        }
+
+        Query query = Query.query(Criteria.where("_id")
+                .gte(LocalDate.ofInstant(start, ZoneOffset.UTC).toString())
+                .lte(LocalDate.ofInstant(end, ZoneOffset.UTC).toString()));
+
+        for (SalesDaily day : mongoTemplate.find(query, SalesDaily.class)) {
+            Instant midnight = LocalDate.parse(day.getId()).atStartOfDay(ZoneOffset.UTC).toInstant();
+            day.getHours().forEach((hour, byStatus) -> {
+                Instant at = midnight.plus(Duration.ofHours(Integer.parseInt(hour)));
+                if (at.isBefore(start) || !at.isBefore(end)) return;
+
+                Point p = points.get(bucketOf(LocalDate.ofInstant(at, zone), granularity));
+                if (p != null) byStatus.forEach(p::add);
+            });
+        }
+
+        List<String> labels = new ArrayList<>();
+        List<Double> revenue = new ArrayList<>();
+        List<Long> orders = new ArrayList<>();
+        List<Long> units = new ArrayList<>();
+        Map<String, List<Long>> ordersByStatus = new LinkedHashMap<>();
+        for (OrderStatus s : OrderStatus.values()) ordersByStatus.put(s.name(), new ArrayList<>());
+
+        points.forEach((bucket, p) -> {
+            labels.add(granularity == Granularity.MONTH ? bucket.toString().substring(0, 7) : bucket.toString());
+            revenue.add(p.revenue);
+            orders.add(p.orders);
+            units.add(p.units);
+            ordersByStatus.forEach((s, list) -> list.add(p.ordersByStatus.getOrDefault(s, 0L)));
+        });
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("granularity", granularity.name().toLowerCase(Locale.ROOT));
+        res.put("tz", zone.getId());
+        res.put("labels", labels);
+        res.put("values", revenue);
+        res.put("orders", orders);
+        res.put("units", units);
+        res.put("ordersByStatus", ordersByStatus);
+        return res;
+    }
+
+    private static LocalDate bucketOf(LocalDate day, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static long units(Order o) {
+        return o.getItems() == null ? 0 : o.getItems().stream().mapToLong(OrderItem::getQuantity).sum();
+    }
+
+    // revenue, orders and units leave out cancelled orders, like the dashboard always has
+    private static final class Point {
+        double revenue;
+        long orders;
+        long units;
+        final Map<String, Long> ordersByStatus = new HashMap<>();
+
+        void add(String status, SalesDaily.Figures f) {
+            ordersByStatus.merge(status, f.getOrders(), Long::sum);
+            if (OrderStatus.CANCELLED.name().equals(status)) return;
+            revenue += f.getRevenue();
+            orders += f.getOrders();
+            units += f.getUnits();
+        }
+    }
+}
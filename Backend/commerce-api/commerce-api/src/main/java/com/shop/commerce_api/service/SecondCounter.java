@@ -0,0 +1,51 @@
+package com.shop.commerce_api.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window counter: one slot per second in a ring, each slot stamped
+ * with its second so a slot left over from a previous lap is replaced rather
+ * than reused. Adds are lock-free; a sum walks at most one slot per second of
+ * window, however much traffic there is.
+ */
+class SecondCounter {
+
+    private record Slot(long second, LongAdder value) {}
+
+    private final AtomicReferenceArray<Slot> slots;
+
+    SecondCounter(int windowSeconds) {
+        this.slots = new AtomicReferenceArray<>(windowSeconds);
+    }
+
+    void add(long nowSecond, long amount) {
+        int i = (int) (nowSecond % slots.length());
+        while (true) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.second() == nowSecond) {
+                slot.value().add(amount);
+                return;
+            }
+            Slot fresh = new Slot(nowSecond, new LongAdder());
+            if (slots.compareAndSet(i, slot, fresh)) {
+                fresh.value().add(amount);
+                return;
+            }
+        }
+    }
+
+    /** Sum of the last {@code seconds} seconds, including the current one. */
+    long sum(long nowSecond, int seconds) {
+        int n = Math.min(seconds, slots.length());
+        long total = 0;
+        for (int k = 0; k < n; k++) {
+            long second = nowSecond - k;
+            Slot slot = slots.get((int) (second % slots.length()));
+            if (slot != null && slot.second() == second) {
+                total += slot.value().sum();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,163 @@
+package com.shop.commerce_api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events fan-out, with subscribers grouped by key (one key for a
+ * broadcast channel, or e.g. the user's email for per-user streams).
+ * <p>
+ * Publishing never blocks: each subscriber has a bounded queue drained by its
+ * own virtual thread, which does the (possibly slow) socket write. A
+ * subscriber whose queue is full is too slow to keep up and is disconnected;
+ * clients are expected to reconnect and resync.
+ */
+public class SseHub<K> {
+
+    private static final Logger log = LoggerFactory.getLogger(SseHub.class);
+
+    public record Event(String id, String name, Object data) {}
+
+    private static final Event HEARTBEAT = new Event(null, null, null);
+    private static final Event CLOSE = new Event(null, null, null);
+
+    private final class Subscriber {
+        final K key;
+        final SseEmitter emitter;
+        final BlockingQueue<Event> queue;
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(K key, SseEmitter emitter, int capacity) {
+            this.key = key;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private final String name;
+    private final int bufferSize;
+    private final long timeoutMs;
+
+    private final Map<K, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SseHub(String name, int bufferSize, long timeoutMs) {
+        this.name = name;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Opens a stream for {@code key}. {@code initial} events (a snapshot, or a
+     * replay of missed events) are sent first, ahead of anything published later.
+     */
+    public SseEmitter subscribe(K key, List<Event> initial) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(key, emitter, Math.max(bufferSize, initial.size() + 1));
+        initial.forEach(s.queue::offer);
+
+        emitter.onCompletion(() -> close(s));
+        emitter.onTimeout(() -> close(s));
+        emitter.onError(e -> close(s));
+
+        subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(s);
+        opened.incrementAndGet();
+        Thread.ofVirtual().name(name + "-sse").start(() -> drain(s));
+        return emitter;
+    }
+
+    public void publish(K key, Event event) {
+        Set<Subscriber> set = subscribers.get(key);
+        if (set != null) {
+            set.forEach(s -> offer(s, event));
+        }
+    }
+
+    public void broadcast(Event event) {
+        subscribers.values().forEach(set -> set.forEach(s -> offer(s, event)));
+    }
+
+    /** Comment line to every subscriber, so proxies keep idle connections open. */
+    public void heartbeat() {
+        broadcast(HEARTBEAT);
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("keys", subscribers.size());
+        res.put("subscribers", subscribers.values().stream().mapToInt(Set::size).sum());
+        res.put("opened", opened.get());
+        res.put("eventsSent", sent.get());
+        res.put("slowConsumersDropped", dropped.get());
+        return res;
+    }
+
+    private void offer(Subscriber s, Event event) {
+        if (!s.queue.offer(event)) {
+            dropped.incrementAndGet();
+            log.debug("Dropping slow {} subscriber {}", name, s.key);
+            close(s);
+        }
+    }
+
+    private void close(Subscriber s) {
+        if (!s.closed.compareAndSet(false, true)) return;
+
+        subscribers.computeIfPresent(s.key, (k, set) -> {
+            set.remove(s);
+            return set.isEmpty() ? null : set;
+        });
+        // wake the sender so it completes the response and exits
+        s.queue.clear();
+        s.queue.offer(CLOSE);
+    }
+
+    private void drain(Subscriber s) {
+        try {
+            while (true) {
+                // the timeout only guards against a lost CLOSE; normally CLOSE wakes us
+                Event e = s.queue.poll(30, TimeUnit.SECONDS);
+                if (e == CLOSE || s.closed.get()) {
+                    s.emitter.complete();
+                    return;
+                }
+                if (e == null) continue;
+                if (e == HEARTBEAT) {
+                    s.emitter.send(SseEmitter.event().comment("ping"));
+                    continue;
+                }
+                SseEmitter.SseEventBuilder out = SseEmitter.event().name(e.name()).data(e.data(), MediaType.APPLICATION_JSON);
+                if (e.id() != null) out.id(e.id());
+                s.emitter.send(out);
+                sent.incrementAndGet();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // client went away, or the response already completed
+            close(s);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close(s);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.entity.Product;
+import com.shop.commerce_api.entity.StockBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opt-in "striped" stock for hot products.
+ * <p>
+ * Instead of a single {@code products.stock} counter, the stock of a striped
+ * product lives in N {@link StockBucket} documents. A decrement picks a random
+ * bucket and falls back to the others, so concurrent checkouts on the same SKU
+ * spread their writes over N documents instead of queueing on one.
+ * Reads sum the buckets.
+ */
+@Service
+public class StripedStockService {
+
+    private static final int MAX_ENABLE_ATTEMPTS = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final int defaultBuckets;
+
+    // productId -> bucket count, for every product currently in striped mode
+    private final Map<String, Integer> striped = new ConcurrentHashMap<>();
+
+    public StripedStockService(MongoTemplate mongoTemplate,
+                               @Value("${app.inventory.stock-buckets:8}") int defaultBuckets) {
+        this.mongoTemplate = mongoTemplate;
+        this.defaultBuckets = defaultBuckets;
+    }
+
+    public boolean isStriped(String productId) {
+        return striped.containsKey(productId);
+    }
+
+    public int defaultBuckets() {
+        return defaultBuckets;
+    }
+
+    // ---------- mode switching ----------
+
+    /**
+     * Moves the product's current stock into {@code buckets} counters. The
+     * buckets are written first, while nothing reads them yet, and the flag
+     * flips (zeroing the plain counter) only if the counter still holds what
+     * went into them; checkouts moving it in between mean another spread.
+     */
+    public void enable(String productId, int buckets) {
+        if (buckets < 2) {
+            throw new IllegalArgumentException("Striped stock needs at least 2 buckets");
+        }
+
+        Product before = readStock(productId);
+        if (before == null || before.isStockStriped()) {
+            return; // unknown product or already striped
+        }
+
+        Integer seen = before.getStock();
+        int total = stockOf(before);
+        List<StockBucket> docs = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            docs.add(new StockBucket(StockBucket.idOf(productId, i), productId, i, share(total, buckets, i)));
+        }
+        try {
+            mongoTemplate.insertAll(docs);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("Stock buckets already exist for product " + productId
+                    + ": another switch is in progress, or an earlier one failed (switching off clears them)");
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            boolean flipped = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(productId).and("stockStriped").ne(true).and("stock").is(seen)),
+                    new Update().set("stockStriped", true).set("stock", 0),
+                    Product.class
+            ).getModifiedCount() == 1;
+            if (flipped) {
+                striped.put(productId, buckets);
+                return;
+            }
+
+            Product now = readStock(productId);
+            if (now == null || attempt == MAX_ENABLE_ATTEMPTS) {
+                mongoTemplate.remove(Query.query(Criteria.where("productId").is(productId)), StockBucket.class);
+                if (now == null) return;
+                throw new IllegalStateException("Stock of product " + productId + " kept changing, try again");
+            }
+            seen = now.getStock();
+            total = stockOf(now);
+            BulkOperations respread = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StockBucket.class);
+            for (int i = 0; i < buckets; i++) {
+                respread.updateOne(Query.query(Criteria.where("_id").is(StockBucket.idOf(productId, i))),
+                        Update.update("stock", share(total, buckets, i)));
+            }
+            respread.execute();
+        }
+    }
+
+    /** Sums the buckets back into {@code products.stock} and drops them. */
+    public void disable(String productId) {
+        Product before = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(productId).and("stockStriped").is(true)),
+                new Update().set("stockStriped", false),
+                Product.class
+        );
+        striped.remove(productId);
+        if (before == null) {
+            // not striped: any buckets are left from a switch that never completed, and the
+            // plain counter still holds their stock
+            mongoTemplate.remove(Query.query(Criteria.where("productId").is(productId)), StockBucket.class);
+            return;
+        }
+
+        // findAndRemove per bucket so a decrement racing with us is never lost;
+        // stock put back afterwards finds no bucket and goes to the plain counter
+        int total = 0;
+        StockBucket b;
+        while ((b = mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("productId").is(productId)), StockBucket.class)) != null) {
+            total += b.getStock();
+        }
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(productId)),
+                new Update().inc("stock", total),
+                Product.class
+        );
+    }
+
+    /** Admin edit of a striped product's stock: spread the new total evenly. */
+    public void reset(String productId, int total) {
+        int buckets = striped.getOrDefault(productId, defaultBuckets);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StockBucket.class);
+        for (int i = 0; i < buckets; i++) {
+            bulk.upsert(
+                    Query.query(Criteria.where("_id").is(StockBucket.idOf(productId, i))),
+                    new Update().set("productId", productId).set("bucket", i).set("stock", share(total, buckets, i))
+            );
+        }
+        bulk.execute();
+    }
+
+    // ---------- reads ----------
+
+    public int total(String productId) {
+        return totals(List.of(productId)).getOrDefault(productId, 0);
+    }
+
+    public Map<String, Integer> totals(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("productId").in(productIds));
+        query.fields().include("productId").include("stock");
+
+        Map<String, Integer> res = new HashMap<>();
+        for (StockBucket b : mongoTemplate.find(query, StockBucket.class)) {
+            res.merge(b.getProductId(), b.getStock(), Integer::sum);
+        }
+        return res;
+    }
+
+    // ---------- writes ----------
+
+    /**
+     * Takes {@code qty} units. Tries a whole-quantity decrement on each bucket
+     * starting from a random one; if no single bucket has enough, drains
+     * several. Returns false (and takes nothing) when the total is short.
+     */
+    public boolean take(String productId, int qty) {
+        int buckets = striped.getOrDefault(productId, defaultBuckets);
+        int start = ThreadLocalRandom.current().nextInt(buckets);
+
+        for (int i = 0; i < buckets; i++) {
+            int bucket = (start + i) % buckets;
+            if (decrement(productId, bucket, qty)) {
+                return true;
+            }
+        }
+
+        // no bucket holds qty on its own: collect it from several
+        int remaining = qty;
+        Map<Integer, Integer> taken = new HashMap<>();
+        Query query = Query.query(Criteria.where("productId").is(productId).and("stock").gt(0));
+        for (StockBucket b : mongoTemplate.find(query, StockBucket.class)) {
+            int part = Math.min(b.getStock(), remaining);
+            if (part > 0 && decrement(productId, b.getBucket(), part)) {
+                taken.merge(b.getBucket(), part, Integer::sum);
+                remaining -= part;
+            }
+            if (remaining == 0) {
+                return true;
+            }
+        }
+
+        taken.forEach((bucket, part) -> giveBack(productId, bucket, part));
+        return false;
+    }
+
+    /** Returns {@code qty} units to a random bucket. */
+    public void put(String productId, int qty) {
+        int buckets = striped.getOrDefault(productId, defaultBuckets);
+        giveBack(productId, ThreadLocalRandom.current().nextInt(buckets), qty);
+    }
+
+    /**
+     * Buckets are never created here: one that is gone was folded into the
+     * plain counter by {@link #disable}, so the units go there instead. A
+     * missing bucket on a product still striped is an error.
+     */
+    private void giveBack(String productId, int bucket, int qty) {
+        if (increment(productId, bucket, qty) || increment(productId, 0, qty)) {
+            return;
+        }
+        Product p = readStock(productId);
+        if (p == null) {
+            return; // product deleted along with its stock
+        }
+        if (p.isStockStriped()) {
+            throw new IllegalStateException("Stock bucket missing for striped product " + productId);
+        }
+        striped.remove(productId);
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(productId)),
+                new Update().inc("stock", qty),
+                Product.class
+        );
+    }
+
+    private boolean decrement(String productId, int bucket, int qty) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(StockBucket.idOf(productId, bucket)).and("stock").gte(qty)),
+                new Update().inc("stock", -qty),
+                StockBucket.class
+        ).getModifiedCount() == 1;
+    }
+
+    private boolean increment(String productId, int bucket, int qty) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(StockBucket.idOf(productId, bucket))),
+                new Update().inc("stock", qty),
+                StockBucket.class
+        ).getMatchedCount() == 1;
+    }
+
+    private Product readStock(String productId) {
+        Query query = Query.query(Criteria.where("_id").is(productId));
+        query.fields().include("stock").include("stockStriped");
+        return mongoTemplate.findOne(query, Product.class);
+    }
+
+    private static int stockOf(Product p) {
+        return p.getStock() != null ? p.getStock() : 0;
+    }
+
+    /** Remembers a product that another node switched to striped mode. */
+    void markStriped(String productId) {
+        striped.computeIfAbsent(productId, this::countBuckets);
+    }
+
+    // keep the striped set in sync with other nodes toggling the mode
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.inventory.striped-refresh-ms:30000}")
+    public void refresh() {
+        Query query = Query.query(Criteria.where("stockStriped").is(true));
+        query.fields().include("_id");
+
+        Set<String> ids = new HashSet<>();
+        for (Product p : mongoTemplate.find(query, Product.class)) {
+            ids.add(p.getId());
+        }
+        striped.keySet().retainAll(ids);
+        ids.forEach(this::markStriped);
+    }
+
+    private int countBuckets(String productId) {
+        long n = mongoTemplate.count(Query.query(Criteria.where("productId").is(productId)), StockBucket.class);
+        return n > 0 ? (int) n : defaultBuckets;
+    }
+
+    private static int share(int total, int buckets, int bucket) {
+        return total / buckets + (bucket < total % buckets ? 1 : 0);
+    }
+}
@@ -0,0 +1,29 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.entity.User;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/** Keeps {@link CachingUserDetailsService} in line with every save/delete of a user. */
+@Component
+public class UserCacheEvictionListener extends AbstractMongoEventListener<User> {
+
+    private final CachingUserDetailsService userDetailsService;
+
+    public UserCacheEvictionListener(CachingUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        userDetailsService.evict(event.getSource().getEmail());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        // only the delete filter is known here, not the email
+        userDetailsService.evictAll();
+    }
+}
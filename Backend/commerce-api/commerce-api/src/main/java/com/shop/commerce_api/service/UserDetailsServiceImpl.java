@@ -2,6 +2,7 @@ package com.shop.commerce_api.service;
 
 import com.shop.commerce_api.entity.User;
 import com.shop.commerce_api.repository.UserRepository;
+import com.shop.commerce_api.security.AuthUser;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
@@ -32,14 +33,6 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 .map(SimpleGrantedAuthority::new)
                 .collect(Collectors.toSet());
 
-        return org.springframework.security.core.userdetails.User
-                .withUsername(u.getEmail())
-                .password(u.getPassword())
-                .authorities(authorities)
-                .accountExpired(false)
-                .accountLocked(false)
-                .credentialsExpired(false)
-                .disabled(false)
-                .build();
+        return new AuthUser(u.getId(), u.getEmail(), u.getName(), u.getPassword(), authorities, u.getTokenVersion());
     }
 }
@@ -0,0 +1,63 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.dto.CursorPage;
+import com.shop.commerce_api.entity.ERole;
+import com.shop.commerce_api.entity.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Admin user listing, paged by email (unique, so a stable keyset) instead of
+ * loading the collection. Searches are anchored, case-folded prefixes on
+ * {@code email} and {@code nameLower}, which both indexes can answer as ranges.
+ */
+@Service
+public class UserDirectoryService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserDirectoryService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public CursorPage<User> page(String search, ERole role, String after, int limit) {
+        List<Criteria> and = new ArrayList<>();
+
+        if (after != null && !after.isBlank()) {
+            and.add(Criteria.where("email").gt(after));
+        }
+        if (role != null) {
+            and.add(Criteria.where("roles.name").is(role));
+        }
+        if (search != null && !search.isBlank()) {
+            // "^" + literal keeps the regex a bounded index scan
+            String prefix = "^" + Pattern.quote(search.trim().toLowerCase(Locale.ROOT));
+            and.add(new Criteria().orOperator(
+                    Criteria.where("email").regex(prefix),
+                    Criteria.where("nameLower").regex(prefix)
+            ));
+        }
+
+        Query query = new Query();
+        if (!and.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(and));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "email")).limit(limit + 1);
+        query.fields().include("name", "email", "roles");
+
+        List<User> users = mongoTemplate.find(query, User.class);
+        if (users.size() <= limit) {
+            return new CursorPage<>(users, null);
+        }
+        List<User> page = users.subList(0, limit);
+        return new CursorPage<>(page, page.get(limit - 1).getEmail());
+    }
+}
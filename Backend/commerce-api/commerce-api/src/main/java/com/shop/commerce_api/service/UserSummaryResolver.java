@@ -0,0 +1,45 @@
+package com.shop.commerce_api.service;
+
+import com.shop.commerce_api.dto.UserSummary;
+import com.shop.commerce_api.entity.User;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Names and emails for a page of records that reference users by id: one
+ * {@code _id $in} query over the distinct ids, projected to name and email,
+ * instead of loading users one by one or all at once.
+ */
+@Service
+public class UserSummaryResolver {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserSummaryResolver(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** userId -> summary; ids that match no user are simply absent. */
+    public Map<String, UserSummary> resolve(Collection<String> userIds) {
+        Set<String> ids = userIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Collections.emptyMap(); // unlike Map.of(), get(null) is allowed
+        }
+
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("name", "email");
+
+        Map<String, UserSummary> res = new HashMap<>(ids.size() * 2);
+        for (User u : mongoTemplate.find(query, User.class)) {
+            res.put(u.getId(), new UserSummary(u.getId(), u.getName(), u.getEmail()));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,25 @@
+package com.shop.commerce_api.util;
+
+import java.nio.charset.StandardCharsets;
+
+/** String hashing shared by the in-memory sketches (bloom filter, HyperLogLog). */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /** FNV-1a with a murmur3 finalizer: fast, and well mixed in every bit. */
+    public static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,42 @@
+package com.shop.commerce_api.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthRateLimiterTest {
+
+    @Test
+    void emailBucketRunsDryAfterCapacity() {
+        AuthRateLimiter limiter = new AuthRateLimiter(1024, 100, 1, 3, 1);
+
+        assertThat(limiter.tryAcquire("10.0.0.1", "a@shop.com")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.2", "A@Shop.com ")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.3", "a@shop.com")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.4", "a@shop.com")).isFalse();
+
+        assertThat(limiter.stats()).containsEntry("rejectedByEmail", 1L);
+    }
+
+    @Test
+    void ipBucketLimitsAcrossEmails() {
+        AuthRateLimiter limiter = new AuthRateLimiter(1024, 2, 1, 100, 1);
+
+        assertThat(limiter.tryAcquire("10.0.0.1", "a@shop.com")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.1", "b@shop.com")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.1", "c@shop.com")).isFalse();
+
+        assertThat(limiter.stats()).containsEntry("rejectedByIp", 1L);
+    }
+
+    @Test
+    void bucketRefillsOverTime() throws InterruptedException {
+        // 6000/min = 1 token every 10 ms
+        AuthRateLimiter.Buckets buckets = new AuthRateLimiter.Buckets(16, 1, 6000);
+
+        assertThat(buckets.tryAcquire("k")).isTrue();
+        assertThat(buckets.tryAcquire("k")).isFalse();
+        Thread.sleep(30);
+        assertThat(buckets.tryAcquire("k")).isTrue();
+    }
+}
@@ -0,0 +1,82 @@
+package com.shop.commerce_api.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT cost in {@link JwtFilter}: the old validate-then-extract
+ * path (two parsers, two signature checks) against {@link JwtUtils#parseJwt}
+ * with and without the verified-token cache.
+ * <p>
+ * Not a unit test; run {@link #main} (after {@code mvn test-compile}) with
+ * the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8gISIjJCUmJygpKissLS4vMDEyMzQ1Njc4OTo7PD0+Pw=="; // 64 bytes, base64
+
+    private JwtUtils cached;
+    private JwtUtils uncached;
+    private Key key;
+    private String token;
+
+    @Setup
+    public void setup() {
+        cached = jwtUtils(50_000);
+        uncached = jwtUtils(0);
+        key = (Key) ReflectionTestUtils.getField(cached, "key");
+
+        AuthUser user = new AuthUser("65f0c0ffee0000000000beef", "customer@shop.com", null, null,
+                Set.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), 0L);
+        token = cached.generateJwt(user);
+    }
+
+    @Benchmark
+    public String validateThenExtract() {
+        // what JwtFilter used to do: validateJwt(...) then getEmailFromJwt(...)
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public Claims parseOnce() {
+        return uncached.parseJwt(token);
+    }
+
+    @Benchmark
+    public Claims parseCached() {
+        return cached.parseJwt(token);
+    }
+
+    private static JwtUtils jwtUtils(int cacheSize) {
+        JwtUtils utils = new JwtUtils();
+        ReflectionTestUtils.setField(utils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(utils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(utils, "cacheMaxSize", cacheSize);
+        ReflectionTestUtils.setField(utils, "cacheTtlMs", 300_000L);
+        utils.init();
+        return utils;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
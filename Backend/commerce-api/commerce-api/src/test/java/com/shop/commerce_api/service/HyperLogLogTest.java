@@ -0,0 +1,39 @@
+package com.shop.commerce_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HyperLogLogTest {
+
+    @Test
+    void smallCountsAreExact() {
+        HyperLogLog hll = new HyperLogLog(12);
+        for (int i = 0; i < 100; i++) {
+            hll.add("user" + (i % 10) + "@shop.com");
+        }
+        assertThat(hll.estimate()).isEqualTo(10);
+    }
+
+    @Test
+    void largeCountsStayWithinErrorBounds() {
+        HyperLogLog hll = new HyperLogLog(12);
+        for (int i = 0; i < 200_000; i++) {
+            hll.add("user" + i + "@shop.com");
+        }
+        assertThat(hll.estimate()).isBetween(190_000L, 210_000L); // ~1.6% standard error
+    }
+
+    @Test
+    void mergeCountsTheUnion() {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        for (int i = 0; i < 3_000; i++) a.add("u" + i);
+        for (int i = 2_000; i < 5_000; i++) b.add("u" + i);
+
+        int[] union = new int[1 << 12];
+        a.mergeInto(union);
+        b.mergeInto(union);
+        assertThat(HyperLogLog.estimate(union)).isBetween(4_750L, 5_250L);
+    }
+}
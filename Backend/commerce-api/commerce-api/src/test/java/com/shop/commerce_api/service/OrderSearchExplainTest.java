@@ -0,0 +1,128 @@
+package com.shop.commerce_api.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.shop.commerce_api.dto.CursorPage;
+import com.shop.commerce_api.entity.Order;
+import com.shop.commerce_api.entity.OrderStatus;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that every admin order search shape is answered from an index
+ * (IXSCAN, no COLLSCAN, no in-memory SORT) and that keyset pages neither skip
+ * nor repeat orders. Needs a real MongoDB, so it only runs when MONGO_URI is
+ * set; it works in a throwaway database.
+ */
+@EnabledIfEnvironmentVariable(named = "MONGO_URI", matches = ".+")
+class OrderSearchExplainTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T12:00:00Z");
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+    private static OrderSearchService search;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(System.getenv("MONGO_URI"));
+        mongo = new MongoTemplate(client, "commerce_explain_" + System.currentTimeMillis());
+        IndexResolver.create(mongo.getConverter().getMappingContext())
+                .resolveIndexFor(Order.class)
+                .forEach(mongo.indexOps(Order.class)::createIndex);
+        search = new OrderSearchService(mongo);
+
+        List<Order> orders = new ArrayList<>();
+        OrderStatus[] statuses = OrderStatus.values();
+        for (int i = 0; i < 500; i++) {
+            Order o = new Order();
+            o.setUserId("user-" + (i % 20));
+            o.setEmail("customer" + (i % 20) + "@example.com");
+            o.setStatus(statuses[i % statuses.length]);
+            o.setTotal(10 + (i % 37));  // plenty of ties on total
+            o.setCreatedAt(NOW.minus(Duration.ofMinutes(i / 3)));  // and on createdAt
+            orders.add(o);
+        }
+        mongo.insertAll(orders);
+    }
+
+    @AfterAll
+    static void cleanup() {
+        mongo.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void everySearchShapeUsesAnIndex() {
+        Instant weekAgo = NOW.minus(Duration.ofDays(7));
+        List<OrderSearchService.Filter> filters = List.of(
+                filter(null, null, null, null),
+                filter(OrderStatus.PENDING, weekAgo, null, null),
+                filter(null, weekAgo, "customer3@example.com", null),
+                filter(OrderStatus.PAID, null, "customer3@example.com", null),
+                filter(null, null, null, "user-7"),
+                new OrderSearchService.Filter(OrderStatus.SHIPPED, weekAgo, NOW, null, null, 20.0, 40.0)
+        );
+
+        for (OrderSearchService.Filter f : filters) {
+            for (OrderSearchService.SortField sort : OrderSearchService.SortField.values()) {
+                // total sorts with an equality filter may legitimately sort that customer's orders in memory
+                boolean mustAvoidSort = sort == OrderSearchService.SortField.CREATED_AT;
+                String plan = winningPlan(search.query(f, sort, false, null, 21));
+                assertThat(plan).as("%s by %s", f, sort).contains("IXSCAN").doesNotContain("COLLSCAN");
+                if (mustAvoidSort) {
+                    assertThat(plan).as("%s by %s", f, sort).doesNotContain("\"SORT\"");
+                }
+            }
+        }
+    }
+
+    @Test
+    void keysetPagesCoverEveryMatchOnce() {
+        for (OrderSearchService.SortField sort : OrderSearchService.SortField.values()) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                OrderSearchService.Filter f = filter(null, null, null, null);
+                Set<String> seen = new HashSet<>();
+                String cursor = null;
+                do {
+                    CursorPage<Order> page = search.search(f, sort, ascending, cursor, 30);
+                    page.items().forEach(o -> assertThat(seen.add(o.getId())).as("repeated %s", o.getId()).isTrue());
+                    cursor = page.nextCursor();
+                } while (cursor != null);
+                assertThat(seen).hasSize(500);
+            }
+        }
+    }
+
+    private static OrderSearchService.Filter filter(OrderStatus status, Instant from, String email, String userId) {
+        return new OrderSearchService.Filter(status, from, null, email, userId, null, null);
+    }
+
+    private static String winningPlan(Query query) {
+        MongoPersistentEntity<?> entity = mongo.getConverter().getMappingContext().getRequiredPersistentEntity(Order.class);
+        QueryMapper mapper = new QueryMapper(mongo.getConverter());
+        Document explain = mongo.getCollection(mongo.getCollectionName(Order.class))
+                .find(mapper.getMappedObject(query.getQueryObject(), entity))
+                .sort(mapper.getMappedSort(query.getSortObject(), entity))
+                .limit(query.getLimit())
+                .explain();
+        return ((Document) explain.get("queryPlanner")).get("winningPlan", Document.class).toJson();
+    }
+}
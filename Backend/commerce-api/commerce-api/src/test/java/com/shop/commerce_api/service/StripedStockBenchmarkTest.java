@@ -0,0 +1,117 @@
+package com.shop.commerce_api.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.shop.commerce_api.entity.Product;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Flash-sale style contention benchmark: many threads decrementing the stock of
+ * one product, single counter vs. striped buckets. Needs a real MongoDB, so it
+ * only runs when MONGO_URI is set; it works in a throwaway database.
+ */
+@EnabledIfEnvironmentVariable(named = "MONGO_URI", matches = ".+")
+class StripedStockBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StripedStockBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int TAKES_PER_THREAD = 500;
+    private static final int STOCK = THREADS * TAKES_PER_THREAD;
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(System.getenv("MONGO_URI"));
+        mongo = new MongoTemplate(client, "commerce_bench_" + System.currentTimeMillis());
+    }
+
+    @AfterAll
+    static void cleanup() {
+        mongo.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void stripedStockOutperformsSingleCounterUnderContention() throws Exception {
+        // single document counter
+        Product single = newProduct("single");
+        double singleOps = run(() -> mongo.updateFirst(
+                Query.query(Criteria.where("_id").is(single.getId()).and("stock").gte(1)),
+                new Update().inc("stock", -1),
+                Product.class
+        ).getModifiedCount() == 1);
+
+        // 16 buckets
+        StripedStockService striped = new StripedStockService(mongo, 16);
+        Product hot = newProduct("striped");
+        striped.enable(hot.getId(), 16);
+        double stripedOps = run(() -> striped.take(hot.getId(), 1));
+
+        double gain = stripedOps / singleOps;
+        log.info("single counter: {} ops/s, striped(16): {} ops/s, gain x{}",
+                String.format("%.0f", singleOps), String.format("%.0f", stripedOps), String.format("%.2f", gain));
+        assertThat(gain).as("striped over single-counter throughput").isGreaterThan(1.0);
+
+        // both modes sell exactly the stock, never more
+        assertThat(mongo.findById(single.getId(), Product.class).getStock()).isZero();
+        assertThat(striped.total(hot.getId())).isZero();
+        assertThat(striped.take(hot.getId(), 1)).isFalse();
+    }
+
+    private static Product newProduct(String slug) {
+        Product p = new Product();
+        p.setTitle(slug);
+        p.setSlug(slug);
+        p.setPrice(BigDecimal.ONE);
+        p.setStock(STOCK);
+        return mongo.insert(p);
+    }
+
+    // ops per second for THREADS x TAKES_PER_THREAD successful decrements
+    private static double run(BooleanSupplier take) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < TAKES_PER_THREAD; i++) {
+                    if (!take.getAsBoolean()) failed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        long elapsed = System.nanoTime() - began;
+        pool.shutdown();
+
+        assertThat(failed.get()).isZero();
+        return STOCK / (elapsed / 1e9);
+    }
+}
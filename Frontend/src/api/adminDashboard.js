@@ -22,4 +22,22 @@ export async function getDashboardRecentOrders() {
 export async function getDashboardAlerts() {
   const { data } = await http.get("/admin/dashboard/alerts");
   return data;
-}
\ No newline at end of file
+}
+
+// { from, to, granularity: "day" | "week" | "month", tz } — served from daily rollups
+export async function getDashboardSales(params = {}) {
+  const { data } = await http.get("/admin/dashboard/sales", { params });
+  return data;
+}
+
+// { from, to, limit, by: "revenue" | "units" } — UTC days, from the product_sales view
+export async function getDashboardTopProducts(params = {}) {
+  const { data } = await http.get("/admin/dashboard/top-products", { params });
+  return data;
+}
+
+// { from, to } — UTC days
+export async function getDashboardRevenueByCategory(params = {}) {
+  const { data } = await http.get("/admin/dashboard/revenue-by-category", { params });
+  return data;
+}
@@ -1,13 +1,23 @@
 import axiosAuth from "./axiosAuth";
 
-export async function fetchNotifications() {
-  return axiosAuth.get("/notifications");
+// newest first; pass { before, beforeId } from the last notification for older ones
+export async function fetchNotifications(params = {}) {
+  return axiosAuth.get("/notifications", { params });
 }
 
-export async function markNotificationsRead() {
-  return axiosAuth.post("/notifications/read");
+export async function fetchUnreadCount() {
+  return axiosAuth.get("/notifications/unread-count");
+}
+
+// all unread, or only those created up to `upTo` (ISO timestamp)
+export async function markNotificationsRead(upTo) {
+  return axiosAuth.post("/notifications/read", null, { params: upTo ? { upTo } : {} });
+}
+
+export async function markNotificationRead(id) {
+  return axiosAuth.post(`/notifications/${id}/read`);
 }
 
 export async function clearNotifications() {
   return axiosAuth.delete("/notifications/clear"); 
-}
\ No newline at end of file
+}
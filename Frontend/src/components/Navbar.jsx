@@ -1,10 +1,11 @@
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import { Link, useNavigate } from "react-router-dom";
 import { useAuth } from "../context/AuthContext";
 import { useCart } from "../context/CartContext";
 import { ChevronDown, ShoppingCart, Bell, Check } from "lucide-react";
 import axiosAuth from "../api/axiosAuth";
 import http from "../lib/http";
+import { openEventStream } from "../lib/sse";
 
 export default function Navbar() {
   const { name, email, isAuthenticated, logout } = useAuth();
@@ -20,26 +21,72 @@ export default function Navbar() {
   // Notifications
   // ---------------------
   const [notifications, setNotifications] = useState([]);
+  const [unreadCount, setUnreadCount] = useState(0);
+  const unreadRef = useRef(0);
+  const [hasOlder, setHasOlder] = useState(false);
   const [openNoti, setOpenNoti] = useState(false);
 
-  const unreadCount = notifications.filter((n) => !n.read).length;
+  const NOTI_PAGE = 20;
 
-  const fetchNotifications = async () => {
+  // newest page, or the page after the last one shown
+  const fetchNotifications = async (older = false) => {
     if (!isAuthenticated) return;
     try {
-      const res = await axiosAuth.get("/notifications"); // -> GET /api/notifications
+      const last = older ? notifications[notifications.length - 1] : null;
+      const params = { limit: NOTI_PAGE };
+      if (last) {
+        params.before = last.createdAt;
+        params.beforeId = last.id;
+      }
+      const res = await axiosAuth.get("/notifications", { params }); // -> GET /api/notifications
       const list = Array.isArray(res.data) ? res.data : [];
-      setNotifications(list);
+      setNotifications((prev) => (older ? [...prev, ...list] : list));
+      setHasOlder(list.length === NOTI_PAGE);
     } catch (err) {
       console.error("NOTIFICATION ERROR:", err);
     }
   };
 
+  // the badge: one small read
+  const fetchUnreadCount = async () => {
+    if (!isAuthenticated) return;
+    try {
+      const res = await axiosAuth.get("/notifications/unread-count");
+      const unread = Number(res.data?.unread ?? 0);
+      // something new arrived: refresh the list too
+      if (unread > unreadRef.current) fetchNotifications();
+      unreadRef.current = unread;
+      setUnreadCount(unread);
+    } catch (err) {
+      console.error("UNREAD COUNT ERROR:", err);
+    }
+  };
+
   const markAllRead = async () => {
     if (!isAuthenticated) return;
     try {
-      await axiosAuth.post("/notifications/read"); // -> POST /api/notifications/read
+      // only what the user has seen: anything newer stays unread
+      const newest = notifications[0]?.createdAt;
+      const res = await axiosAuth.post("/notifications/read", null, {
+        params: newest ? { upTo: newest } : {},
+      }); // -> POST /api/notifications/read
       setNotifications((prev) => prev.map((n) => ({ ...n, read: true })));
+      const unread = Math.max(0, unreadRef.current - Number(res.data?.updated ?? 0));
+      unreadRef.current = unread;
+      setUnreadCount(unread);
+    } catch (err) {
+      console.error("MARK READ ERROR:", err);
+    }
+  };
+
+  const markOneRead = async (id) => {
+    if (!isAuthenticated) return;
+    try {
+      const res = await axiosAuth.post(`/notifications/${id}/read`);
+      setNotifications((prev) => prev.map((n) => (n.id === id ? { ...n, read: true } : n)));
+      const unread = Math.max(0, unreadRef.current - Number(res.data?.updated ?? 0));
+      unreadRef.current = unread;
+      setUnreadCount(unread);
     } catch (err) {
       console.error("MARK READ ERROR:", err);
     }
@@ -50,6 +97,9 @@ export default function Navbar() {
     try {
       await axiosAuth.delete("/notifications/clear"); // -> DELETE /api/notifications
       setNotifications([]);                     // clear UI immediately
+      unreadRef.current = 0;
+      setUnreadCount(0);
+      setHasOlder(false);
     } catch (err) {
       console.error("CLEAR NOTIFICATIONS ERROR:", err);
     }
@@ -58,12 +108,36 @@ export default function Navbar() {
   useEffect(() => {
     if (!isAuthenticated) {
       setNotifications([]);
+      unreadRef.current = 0;
+      setUnreadCount(0);
       return;
     }
 
     fetchNotifications();
-    const interval = setInterval(fetchNotifications, 15000);
-    return () => clearInterval(interval);
+    fetchUnreadCount();
+
+    // new notifications are pushed; missed ones are replayed on reconnect
+    const closeStream = openEventStream("/notifications/stream", {
+      onEvent: (evt) => {
+        if (evt.event === "notification") {
+          const n = evt.data;
+          setNotifications((prev) => (prev.some((p) => p.id === n.id) ? prev : [n, ...prev]));
+          if (!n.read) {
+            unreadRef.current += 1;
+            setUnreadCount(unreadRef.current);
+          }
+        } else if (evt.event === "resync") {
+          fetchNotifications();
+          fetchUnreadCount();
+        }
+      },
+    });
+    // slow safety net for anything pushed by another server
+    const interval = setInterval(fetchUnreadCount, 60000);
+    return () => {
+      closeStream();
+      clearInterval(interval);
+    };
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, [isAuthenticated]);
 
@@ -235,6 +309,8 @@ export default function Navbar() {
                       unreadCount={unreadCount}
                       onMarkAllRead={markAllRead}
                       onClearAll={clearAllNotifications}
+                      onMarkRead={markOneRead}
+                      onLoadOlder={hasOlder ? () => fetchNotifications(true) : null}
                     />
                   </div>
                 )}
@@ -306,6 +382,8 @@ export default function Navbar() {
                       unreadCount={unreadCount}
                       onMarkAllRead={markAllRead}
                       onClearAll={clearAllNotifications}
+                      onMarkRead={markOneRead}
+                      onLoadOlder={hasOlder ? () => fetchNotifications(true) : null}
                     />
                   </div>
                 )}
@@ -462,6 +540,8 @@ function NotificationPanel({
   unreadCount,
   onMarkAllRead,
   onClearAll,
+  onMarkRead,
+  onLoadOlder,
 }) {
   return (
     <>
@@ -503,10 +583,11 @@ function NotificationPanel({
         {notifications.map((n) => (
           <div
             key={n.id}
+            onClick={() => !n.read && onMarkRead(n.id)}
             className={`flex items-start gap-2 p-3 rounded-xl border text-sm ${
               n.read
                 ? "bg-gray-50 border-gray-200"
-                : "bg-indigo-50 border-indigo-200"
+                : "bg-indigo-50 border-indigo-200 cursor-pointer"
             }`}
           >
             <div
@@ -523,6 +604,14 @@ function NotificationPanel({
             </div>
           </div>
         ))}
+        {onLoadOlder && (
+          <button
+            onClick={onLoadOlder}
+            className="w-full text-[11px] py-1 rounded-full text-indigo-600 hover:bg-indigo-50"
+          >
+            Load older
+          </button>
+        )}
       </div>
     </>
   );
@@ -1,4 +1,5 @@
 import { createContext, useContext, useEffect, useMemo, useState } from "react";
+import http from "../lib/http";
 
 export const AUTH_STORAGE_KEY = "auth_user";
 
@@ -48,6 +49,12 @@ export function AuthProvider({ children }) {
   };
 
   const logout = () => {
+    // revoke the token server-side too; the local session is cleared regardless
+    if (auth?.token) {
+      http
+        .post("/auth/logout", null, { headers: { Authorization: `Bearer ${auth.token}` } })
+        .catch(() => {});
+    }
     localStorage.removeItem(AUTH_STORAGE_KEY);
     setAuth(null);
   };
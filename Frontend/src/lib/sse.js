@@ -0,0 +1,90 @@
+import http from "./http.jsx";
+
+const STORAGE_KEY = "auth_user";
+
+function authHeader() {
+  try {
+    const { token } = JSON.parse(localStorage.getItem(STORAGE_KEY) || "null") ?? {};
+    return token ? { Authorization: `Bearer ${token}` } : {};
+  } catch {
+    return {};
+  }
+}
+
+/**
+ * Server-Sent Events over fetch (EventSource can't send the Authorization
+ * header). Reconnects with backoff and resumes with Last-Event-ID.
+ * Returns a function that closes the stream.
+ */
+export function openEventStream(path, { onEvent, onOpen, onError } = {}) {
+  const controller = new AbortController();
+  let lastEventId = null;
+  let retryMs = 1000;
+
+  async function connect() {
+    while (!controller.signal.aborted) {
+      try {
+        const headers = { Accept: "text/event-stream", ...authHeader() };
+        if (lastEventId) headers["Last-Event-ID"] = lastEventId;
+
+        const res = await fetch(`${http.defaults.baseURL}${path}`, {
+          headers,
+          signal: controller.signal,
+        });
+        if (!res.ok || !res.body) throw new Error(`Stream failed: ${res.status}`);
+
+        retryMs = 1000;
+        onOpen?.();
+        await readEvents(res.body, (evt) => {
+          if (evt.id) lastEventId = evt.id;
+          onEvent?.(evt);
+        });
+      } catch (err) {
+        if (controller.signal.aborted) return;
+        onError?.(err);
+      }
+      // server closed the stream (timeout, slow consumer) or it failed: come back later
+      await new Promise((r) => setTimeout(r, retryMs));
+      retryMs = Math.min(retryMs * 2, 30000);
+    }
+  }
+
+  connect();
+  return () => controller.abort();
+}
+
+async function readEvents(body, emit) {
+  const reader = body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = "";
+
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) return;
+    buffer += decoder.decode(value, { stream: true });
+
+    let sep;
+    while ((sep = buffer.search(/\r?\n\r?\n/)) >= 0) {
+      const block = buffer.slice(0, sep);
+      buffer = buffer.slice(sep).replace(/^\r?\n\r?\n/, "");
+
+      const evt = { id: null, event: "message", data: "" };
+      for (const line of block.split(/\r?\n/)) {
+        if (!line || line.startsWith(":")) continue; // comment / heartbeat
+        const i = line.indexOf(":");
+        const field = i < 0 ? line : line.slice(0, i);
+        const val = i < 0 ? "" : line.slice(i + 1).replace(/^ /, "");
+        if (field === "id") evt.id = val;
+        else if (field === "event") evt.event = val;
+        else if (field === "data") evt.data += (evt.data ? "\n" : "") + val;
+      }
+      if (!evt.data) continue;
+      try {
+        evt.data = JSON.parse(evt.data);
+      } catch {
+        /* plain text payload */
+      }
+      emit(evt);
+    }
+  }
+}
@@ -1,4 +1,4 @@
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import { useNavigate } from "react-router-dom";
 import Navbar from "../components/Navbar";
 import { useAuth } from "../context/AuthContext";
@@ -11,6 +11,9 @@ export default function BillingPage() {
   const { cartItems, clearCart } = useCart();
   const navigate = useNavigate();
 
+  // one key per checkout, so a retried submit can't place the order twice
+  const idempotencyKey = useRef(crypto.randomUUID());
+
   const subtotal = cartItems.reduce(
     (sum, item) => sum + item.price * item.quantity,
     0
@@ -93,13 +96,21 @@ export default function BillingPage() {
 
     try {
       setSubmitting(true);
-      const res = await http.post("/orders", payload);
+      const res = await http.post("/orders", payload, {
+        headers: { "Idempotency-Key": idempotencyKey.current },
+      });
       toast.success("Order placed successfully!");
       clearCart();
       navigate("/order-success");
     } catch (err) {
       console.error(err);
-      toast.error("Failed to place order.");
+      if (err.response?.status === 409) {
+        toast.error("Some items are no longer in stock.");
+      } else if (err.response?.status === 429) {
+        toast.error("Checkout is busy right now, please try again in a moment.");
+      } else {
+        toast.error("Failed to place order.");
+      }
     } finally {
       setSubmitting(false);
     }
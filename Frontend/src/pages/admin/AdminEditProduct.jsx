@@ -33,6 +33,7 @@ export default function AdminEditProduct() {
   const [discountPrice, setDiscountPrice] = useState("");
   const [currency, setCurrency] = useState("EUR");
   const [stock, setStock] = useState("");
+  const [lowStockThreshold, setLowStockThreshold] = useState("");
   const [status, setStatus] = useState("PUBLISHED");
   const [productGender, setProductGender] = useState("");
   const [productCategoryId, setProductCategoryId] = useState("");
@@ -77,6 +78,7 @@ export default function AdminEditProduct() {
         setDiscountPrice(product.discountPrice ?? "");
         setCurrency(product.currency || "EUR");
         setStock(product.stock ?? "");
+        setLowStockThreshold(product.lowStockThreshold ?? "");
         setStatus(product.status || "PUBLISHED");
         setProductGender(product.categoryGender || "");
         setProductCategoryId(product.categoryId || "");
@@ -126,6 +128,8 @@ export default function AdminEditProduct() {
         discountPrice: discountPrice ? Number(discountPrice) : null,
         currency,
         stock: stock ? Number(stock) : 0,
+        // -1 = use the category's threshold, or the store default
+        lowStockThreshold: lowStockThreshold === "" ? -1 : Number(lowStockThreshold),
         status,
         category: productCategoryId,
         images: finalImages,
@@ -286,6 +290,18 @@ export default function AdminEditProduct() {
                     />
                   </div>
 
+                  <div>
+                    <FieldLabel>Low-stock alert below</FieldLabel>
+                    <input
+                      type="number"
+                      min="0"
+                      placeholder="Category default"
+                      value={lowStockThreshold}
+                      onChange={(e) => setLowStockThreshold(e.target.value)}
+                      className="mt-2 block w-full rounded-md border-gray-300 shadow-sm p-2 focus:ring-indigo-500"
+                    />
+                  </div>
+
                   <div>
                     <FieldLabel>Status</FieldLabel>
                     <select
@@ -15,7 +15,10 @@ import {
   getDashboardSalesWeek,
   getDashboardRecentOrders,
   getDashboardAlerts,
+  getDashboardTopProducts,
+  getDashboardRevenueByCategory,
 } from "../../api/adminDashboard";
+import { openEventStream } from "../../lib/sse";
 
 ChartJS.register(CategoryScale, LinearScale, PointElement, LineElement, Tooltip, Legend);
 
@@ -27,6 +30,8 @@ export default function AdminHome() {
   const [salesData, setSalesData] = useState(null);
   const [recentOrders, setRecentOrders] = useState([]);
   const [alerts, setAlerts] = useState([]);
+  const [topProducts, setTopProducts] = useState([]);
+  const [categoryRevenue, setCategoryRevenue] = useState([]);
 
   const [loading, setLoading] = useState(true);
 
@@ -53,12 +58,56 @@ export default function AdminHome() {
     }
   };
 
+  // Product-level figures come from a view refreshed every minute; not part of the stream
+  const loadProductSales = async () => {
+    try {
+      const [top, byCategory] = await Promise.all([
+        getDashboardTopProducts({ limit: 5 }),
+        getDashboardRevenueByCategory(),
+      ]);
+      setTopProducts(top);
+      setCategoryRevenue(byCategory);
+    } catch (error) {
+      toast.error("Failed to load product sales");
+    }
+  };
+
+  // Live updates: the server pushes a snapshot, then only what changed
+  const applyEvent = ({ event, data }) => {
+    switch (event) {
+      case "snapshot":
+        setKpis(data.kpis);
+        setSalesData(data.sales);
+        setRecentOrders(data.recentOrders ?? []);
+        setAlerts(data.alerts ?? []);
+        setLoading(false);
+        break;
+      case "kpis":
+        setKpis(data);
+        break;
+      case "sales":
+        setSalesData(data);
+        break;
+      case "alerts":
+        setAlerts(data ?? []);
+        break;
+      case "order.created":
+        setRecentOrders((prev) => [data, ...prev.filter((o) => o.id !== data.id)].slice(0, 10));
+        break;
+      case "order.status":
+        setRecentOrders((prev) =>
+          prev.map((o) => (o.id === data.id ? { ...o, status: data.to } : o))
+        );
+        break;
+      default:
+        break;
+    }
+  };
+
   useEffect(() => {
     loadDashboard();
-
-    // Auto-refresh every 30 seconds
-    const interval = setInterval(loadDashboard, 30000);
-    return () => clearInterval(interval);
+    loadProductSales();
+    return openEventStream("/admin/dashboard/stream", { onEvent: applyEvent });
   }, []);
 
   if (loading || !kpis) {
@@ -157,6 +206,37 @@ export default function AdminHome() {
         </div>
       </div>
 
+      {/* PRODUCT SALES (last 30 days) */}
+      <div className="grid grid-cols-1 lg:grid-cols-2 gap-6">
+        <div className="bg-white p-6 rounded-xl shadow">
+          <h2 className="font-semibold mb-4">Top Products (30 days)</h2>
+          <ul className="divide-y text-sm">
+            {topProducts.map((p) => (
+              <li key={p.productId} className="py-2 flex justify-between gap-3">
+                <span className="truncate">{p.title ?? p.productId}</span>
+                <span className="text-gray-500 whitespace-nowrap">
+                  {p.units} sold · €{p.revenue.toFixed(2)}
+                </span>
+              </li>
+            ))}
+            {topProducts.length === 0 && <li className="py-2 text-gray-500">No sales yet.</li>}
+          </ul>
+        </div>
+
+        <div className="bg-white p-6 rounded-xl shadow">
+          <h2 className="font-semibold mb-4">Revenue by Category (30 days)</h2>
+          <ul className="divide-y text-sm">
+            {categoryRevenue.map((c) => (
+              <li key={c.categoryId ?? "none"} className="py-2 flex justify-between gap-3">
+                <span className="truncate">{c.name ?? "Uncategorized"}</span>
+                <span className="text-gray-500 whitespace-nowrap">€{c.revenue.toFixed(2)}</span>
+              </li>
+            ))}
+            {categoryRevenue.length === 0 && <li className="py-2 text-gray-500">No sales yet.</li>}
+          </ul>
+        </div>
+      </div>
+
       {/* TABLES SECTION */}
       <div className="grid grid-cols-1 lg:grid-cols-2 gap-6">
         {/* Recent Orders */}
@@ -240,7 +320,7 @@ export default function AdminHome() {
           <ul className="space-y-3 text-sm text-gray-700">
             {alerts.map((a, i) => (
               <li
-                key={i}
+                key={a.key ?? i}
                 className={`p-3 rounded-lg border ${
                   a.level === "ERROR"
                     ? "bg-red-50 border-red-200"
@@ -250,6 +330,11 @@ export default function AdminHome() {
                 }`}
               >
                 {a.message}
+                {a.since && (
+                  <span className="block text-xs text-gray-500 mt-1">
+                    since {new Date(a.since).toLocaleString()}
+                  </span>
+                )}
               </li>
             ))}
 
@@ -3,179 +3,159 @@ import http from "../../lib/http";
 const STATUS_OPTIONS = ["ALL", "PENDING", "PAID", "SHIPPED", "CANCELLED"];
 const STATUS_UPDATE_OPTIONS = ["PENDING", "PAID", "SHIPPED", "CANCELLED"];
 
+const PAGE_SIZE = 20;
+
+const SORTS = {
+  DATE_DESC: { sort: "createdAt", dir: "desc" },
+  DATE_ASC: { sort: "createdAt", dir: "asc" },
+  TOTAL_DESC: { sort: "total", dir: "desc" },
+  TOTAL_ASC: { sort: "total", dir: "asc" },
+};
+
 export default function AdminOrdersPage() {
   const [orders, setOrders] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState(null);
 
-  const [page, setPage] = useState(0);      // frontend page index
-  const [size, setSize] = useState(10);     // items per page
-
-  const [search, setSearch] = useState("");
+  const [email, setEmail] = useState("");
   const [statusFilter, setStatusFilter] = useState("ALL");
   const [sort, setSort] = useState("DATE_DESC");
 
   const [fromDate, setFromDate] = useState("");
   const [toDate, setToDate] = useState("");
+  const [minTotal, setMinTotal] = useState("");
+  const [maxTotal, setMaxTotal] = useState("");
 
-  /* --------------------------------------------------
-   * 1) LOAD ALL ORDERS (single backend call)
-   *    We request a large page so we can handle
-   *    search/sort/pagination fully on the client.
-   * -------------------------------------------------- */
-  useEffect(() => {
-    setLoading(true);
-    setError(null);
-
-    http
-      .get("/admin/orders", {
-        params: { page: 0, size: 1000 },
-      })
-      .then((res) => {
-        const content = res.data?.content || [];
-        setOrders(content);
-      })
-      .catch((err) => {
-        console.error("Failed to load orders:", err);
-        setError("Failed to load orders.");
-      })
-      .finally(() => setLoading(false));
-  }, []);
-
+  const [selected, setSelected] = useState(() => new Set());
+  const [bulkStatus, setBulkStatus] = useState("SHIPPED");
+  const [bulkUpdating, setBulkUpdating] = useState(false);
+  const [exporting, setExporting] = useState(false);
 
   /* --------------------------------------------------
-   * 2) Whenever filters/search/sort change, reset to
-   *    first page so pagination and results stay in sync.
+   * Filtering, sorting and paging run on the server;
+   * the cursor continues after the last loaded order.
    * -------------------------------------------------- */
+  const params = useMemo(() => {
+    const p = { ...SORTS[sort], limit: PAGE_SIZE };
+    if (statusFilter !== "ALL") p.status = statusFilter;
+    if (email.trim()) p.email = email.trim();
+    if (fromDate) p.from = fromDate;
+    if (toDate) p.to = toDate;
+    if (minTotal !== "") p.minTotal = Number(minTotal);
+    if (maxTotal !== "") p.maxTotal = Number(maxTotal);
+    return p;
+  }, [email, statusFilter, sort, fromDate, toDate, minTotal, maxTotal]);
+
+  const fetchOrders = async (cursor = null) => {
+    try {
+      const { data } = await http.get("/admin/orders", {
+        params: cursor ? { ...params, cursor } : params,
+      });
+      const items = Array.isArray(data?.items) ? data.items : [];
+      setOrders((prev) => (cursor ? [...prev, ...items] : items));
+      if (!cursor) setSelected(new Set());
+      setNextCursor(data?.nextCursor ?? null);
+      setError(null);
+    } catch (err) {
+      console.error("Failed to load orders:", err);
+      setError("Failed to load orders.");
+    } finally {
+      setLoading(false);
+      setLoadingMore(false);
+    }
+  };
+
+  // debounce typing in the email / total fields
   useEffect(() => {
-    setPage(0);
-  }, [search, statusFilter, sort, fromDate, toDate, size]);
+    const t = setTimeout(() => fetchOrders(), 300);
+    return () => clearTimeout(t);
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [params]);
+
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    await fetchOrders(nextCursor);
+  };
+
+  const toggleSelected = (id) => {
+    setSelected((prev) => {
+      const next = new Set(prev);
+      if (next.has(id)) next.delete(id);
+      else next.add(id);
+      return next;
+    });
+  };
 
   /* --------------------------------------------------
-   * 3) Apply search + status filter + date filter + sort
-   *    on the full orders list.
+   * BULK STATUS: one request for all selected orders
    * -------------------------------------------------- */
-  const processedOrders = useMemo(() => {
-    let result = [...orders];
-    const s = search.toLowerCase().trim();
-
-    // search: ID, name, email
-    if (s) {
-      result = result.filter((o) => {
-        return (
-          String(o.id).toLowerCase().includes(s) ||
-          (o.fullName || "").toLowerCase().includes(s) ||
-          (o.email || "").toLowerCase().includes(s)
-        );
+  const applyBulkStatus = async () => {
+    if (selected.size === 0) return;
+    setBulkUpdating(true);
+    try {
+      const { data } = await http.post("/admin/orders/status", {
+        ids: [...selected],
+        status: bulkStatus,
       });
-    }
-
-    // status filter
-    if (statusFilter !== "ALL") {
-      result = result.filter(
-        (o) => (o.status || "").toUpperCase() === statusFilter
+      const updated = new Set(
+        (data?.results ?? []).filter((r) => r.outcome === "UPDATED").map((r) => r.id)
       );
-    }
-
-    // date range filter (createdAt)
-    if (fromDate) {
-      const start = new Date(fromDate).getTime();
-      result = result.filter(
-        (o) => new Date(o.createdAt).getTime() >= start
+      setOrders((prev) =>
+        prev.map((o) => (updated.has(o.id) ? { ...o, status: bulkStatus } : o))
       );
-    }
-    if (toDate) {
-      // add 1 day end-of-day so "to" is inclusive
-      const end = new Date(toDate);
-      end.setHours(23, 59, 59, 999);
-      const endTime = end.getTime();
-
-      result = result.filter(
-        (o) => new Date(o.createdAt).getTime() <= endTime
-      );
-    }
 
-    // sort
-    result.sort((a, b) => {
-      const dateA = new Date(a.createdAt).getTime();
-      const dateB = new Date(b.createdAt).getTime();
-      const totalA = Number(a.total);
-      const totalB = Number(b.total);
-
-      switch (sort) {
-        case "DATE_ASC":
-          return dateA - dateB;
-        case "DATE_DESC":
-          return dateB - dateA;        // newest first (global)
-        case "TOTAL_ASC":
-          return totalA - totalB;
-        case "TOTAL_DESC":
-          return totalB - totalA;
-        default:
-          return 0;
+      const refused = (data?.results ?? []).filter(
+        (r) => r.outcome !== "UPDATED" && r.outcome !== "UNCHANGED"
+      );
+      setSelected(new Set(refused.map((r) => r.id)));
+      if (refused.length > 0) {
+        alert(
+          `${updated.size} updated, ${refused.length} refused:\n` +
+            refused.map((r) => `#${r.id}: ${r.outcome}`).join("\n")
+        );
       }
-    });
-
-    return result;
-  }, [orders, search, statusFilter, sort, fromDate, toDate]);
+    } catch (err) {
+      console.error("Bulk status update failed:", err?.response?.data || err.message);
+      alert("Failed to update the selected orders.");
+    } finally {
+      setBulkUpdating(false);
+    }
+  };
 
   /* --------------------------------------------------
-   * 4) Client-side pagination on processedOrders
+   * CSV EXPORT: streamed by the server for the current
+   * status and date filters, one row per order line
    * -------------------------------------------------- */
-  const totalPages = Math.max(
-    1,
-    Math.ceil(processedOrders.length / size)
-  );
+  const exportCSV = async () => {
+    const exportParams = { format: "csv" };
+    if (statusFilter !== "ALL") exportParams.status = statusFilter;
+    if (fromDate) exportParams.from = fromDate;
+    if (toDate) exportParams.to = toDate;
 
-  const pagedOrders = useMemo(() => {
-    const startIdx = page * size;
-    const endIdx = startIdx + size;
-    return processedOrders.slice(startIdx, endIdx);
-  }, [processedOrders, page, size]);
+    setExporting(true);
+    try {
+      const { data } = await http.get("/admin/orders/export", {
+        params: exportParams,
+        responseType: "blob",
+        timeout: 0,
+      });
+      const url = URL.createObjectURL(data);
 
-  /* --------------------------------------------------
-   * 5) CSV EXPORT (export all filtered orders, not only page)
-   * -------------------------------------------------- */
-  const exportCSV = () => {
-    if (processedOrders.length === 0) {
-      alert("No orders to export.");
-      return;
-    }
+      const a = document.createElement("a");
+      a.href = url;
+      a.download = `orders-${fromDate || "start"}-${toDate || "now"}.csv`;
+      a.click();
 
-    const header = [
-      "ID",
-      "Name",
-      "Email",
-      "Phone",
-      "Status",
-      "Total",
-      "CreatedAt",
-      "Address",
-    ].join(",");
-
-    const rows = processedOrders.map((o) =>
-      [
-        o.id,
-        `"${o.fullName}"`,
-        o.email,
-        o.phone,
-        o.status,
-        o.total,
-        o.createdAt,
-        `"${o.address}, ${o.city}, ${o.postalCode}, ${o.country}"`,
-      ].join(",")
-    );
-
-    const csv = [header, ...rows].join("\n");
-    const blob = new Blob([csv], { type: "text/csv" });
-    const url = URL.createObjectURL(blob);
-
-    const a = document.createElement("a");
-    a.href = url;
-    a.download = `orders-${Date.now()}.csv`;
-    a.click();
-
-    URL.revokeObjectURL(url);
+      URL.revokeObjectURL(url);
+    } catch (err) {
+      console.error("Export failed:", err);
+      alert("Failed to export orders.");
+    } finally {
+      setExporting(false);
+    }
   };
 
   /* --------------------------------------------------
@@ -189,20 +169,21 @@ export default function AdminOrdersPage() {
 
         <button
           onClick={exportCSV}
-          className="px-4 py-2 bg-indigo-600 text-white rounded-lg hover:bg-indigo-700 shadow"
+          disabled={exporting}
+          className="px-4 py-2 bg-indigo-600 text-white rounded-lg hover:bg-indigo-700 shadow disabled:opacity-50"
         >
-          Export CSV
+          {exporting ? "Exporting…" : "Export CSV"}
         </button>
       </div>
 
       {/* Filters */}
       <div className="bg-white p-4 rounded-xl shadow mb-6 grid gap-4 md:grid-cols-4">
         <input
-          type="text"
-          placeholder="Search: ID, name, email"
+          type="email"
+          placeholder="Customer email"
           className="border px-3 py-2 rounded-lg"
-          value={search}
-          onChange={(e) => setSearch(e.target.value)}
+          value={email}
+          onChange={(e) => setEmail(e.target.value)}
         />
 
         <select
@@ -226,17 +207,26 @@ export default function AdminOrdersPage() {
           <option value="TOTAL_ASC">Total: Low → High</option>
         </select>
 
-        <select
-          value={size}
-          onChange={(e) => setSize(Number(e.target.value))}
-          className="border px-3 py-2 rounded-lg"
-        >
-          <option value={5}>5 / page</option>
-          <option value={10}>10 / page</option>
-          <option value={20}>20 / page</option>
-        </select>
+        <div className="flex gap-2">
+          <input
+            type="number"
+            min="0"
+            placeholder="Min €"
+            className="border px-3 py-2 rounded-lg w-full"
+            value={minTotal}
+            onChange={(e) => setMinTotal(e.target.value)}
+          />
+          <input
+            type="number"
+            min="0"
+            placeholder="Max €"
+            className="border px-3 py-2 rounded-lg w-full"
+            value={maxTotal}
+            onChange={(e) => setMaxTotal(e.target.value)}
+          />
+        </div>
 
-        {/* DATE RANGE */}
+        {/* DATE RANGE (UTC days, inclusive) */}
         <div className="flex gap-2 md:col-span-2">
           <input
             type="date"
@@ -253,44 +243,61 @@ export default function AdminOrdersPage() {
         </div>
       </div>
 
+      {/* Bulk actions */}
+      {selected.size > 0 && (
+        <div className="bg-indigo-50 border border-indigo-200 p-3 rounded-xl mb-6 flex flex-wrap items-center gap-3 text-sm">
+          <span className="font-medium">{selected.size} selected</span>
+          <select
+            value={bulkStatus}
+            onChange={(e) => setBulkStatus(e.target.value)}
+            className="border px-2 py-1 rounded-lg"
+          >
+            {STATUS_UPDATE_OPTIONS.map((s) => (
+              <option key={s}>{s}</option>
+            ))}
+          </select>
+          <button
+            onClick={applyBulkStatus}
+            disabled={bulkUpdating}
+            className="px-3 py-1 bg-indigo-600 text-white rounded-lg disabled:opacity-40"
+          >
+            {bulkUpdating ? "Updating…" : "Apply to selected"}
+          </button>
+          <button onClick={() => setSelected(new Set())} className="px-3 py-1 border rounded-lg">
+            Clear
+          </button>
+        </div>
+      )}
+
       {/* ORDERS LIST */}
       {loading ? (
         <p className="text-gray-500">Loading orders…</p>
       ) : error ? (
         <p className="text-red-500">{error}</p>
-      ) : processedOrders.length === 0 ? (
+      ) : orders.length === 0 ? (
         <p className="text-gray-500">No orders match your filters.</p>
       ) : (
         <div className="space-y-6">
-          {pagedOrders.map((order) => (
-            <OrderCard key={order.id} order={order} />
+          {orders.map((order) => (
+            <OrderCard
+              key={`${order.id}:${order.status}`}
+              order={order}
+              selected={selected.has(order.id)}
+              onToggle={() => toggleSelected(order.id)}
+            />
           ))}
         </div>
       )}
 
-      {/* Pagination */}
-      {processedOrders.length > 0 && totalPages > 1 && (
-        <div className="flex items-center justify-between mt-6">
+      {/* Load more */}
+      {nextCursor && !loading && (
+        <div className="flex justify-center mt-6">
           <button
-            onClick={() => setPage((p) => Math.max(0, p - 1))}
-            disabled={page === 0}
-            className="px-3 py-1 border rounded-lg disabled:opacity-40"
+            onClick={loadMore}
+            disabled={loadingMore}
+            className="px-4 py-2 border rounded-lg disabled:opacity-40"
           >
-            Previous
-          </button>
-
-          <p className="text-sm">
-            Page <strong>{page + 1}</strong> of {totalPages}
-          </p>
-
-          <button
-            onClick={() =>
-              setPage((p) => Math.min(totalPages - 1, p + 1))
-            }
-            disabled={page === totalPages - 1}
-            className="px-3 py-1 border rounded-lg disabled:opacity-40"
-          >
-            Next
+            {loadingMore ? "Loading…" : "Load more"}
           </button>
         </div>
       )}
@@ -299,7 +306,7 @@ export default function AdminOrdersPage() {
 }
 
 /* --- ORDER CARD WITH STATUS UPDATE FEATURE --- */
-function OrderCard({ order }) {
+function OrderCard({ order, selected, onToggle }) {
   const [updating, setUpdating] = useState(false);
   const [localStatus, setLocalStatus] = useState(order.status);
 
@@ -335,7 +342,10 @@ function OrderCard({ order }) {
     <div className="bg-white p-6 rounded-xl shadow border">
       <div className="flex justify-between items-start mb-4">
         <div>
-          <p className="font-semibold text-gray-900">Order #{order.id}</p>
+          <label className="flex items-center gap-2 font-semibold text-gray-900">
+            <input type="checkbox" checked={selected} onChange={onToggle} />
+            Order #{order.id}
+          </label>
           <p className="text-xs text-gray-500">
             {new Date(order.createdAt).toLocaleString()}
           </p>
@@ -363,6 +373,11 @@ function OrderCard({ order }) {
       <p className="font-medium text-gray-800">{order.fullName}</p>
       <p className="text-sm text-gray-600">{order.email}</p>
       <p className="text-xs text-gray-500 mb-2">Phone: {order.phone}</p>
+      {order.customerEmail && order.customerEmail !== order.email && (
+        <p className="text-xs text-gray-500 mb-2">
+          Account: {order.customerName} ({order.customerEmail})
+        </p>
+      )}
 
       {/* Address */}
       <p className="text-sm text-gray-600 mb-4">
@@ -1,25 +1,45 @@
-import { useEffect, useState, useMemo } from "react";
+import { useEffect, useState } from "react";
 import toast from "react-hot-toast";
 import http from "../../lib/http";
 import { Search } from "lucide-react";
 
+const PAGE_SIZE = 50;
+
 export default function AdminUsers() {
   const [users, setUsers] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   const [search, setSearch] = useState("");
+  const [role, setRole] = useState("");
 
-  async function fetchUsers() {
+  // first page for the current search/role; cursor continues from the last row
+  async function fetchUsers(cursor = null) {
     try {
-      const { data } = await http.get("/admin/users");
-      setUsers(Array.isArray(data) ? data : []);
+      const params = { limit: PAGE_SIZE };
+      if (search.trim()) params.q = search.trim();
+      if (role) params.role = role;
+      if (cursor) params.cursor = cursor;
+
+      const { data } = await http.get("/admin/users", { params });
+      const items = Array.isArray(data?.items) ? data.items : [];
+      setUsers((prev) => (cursor ? [...prev, ...items] : items));
+      setNextCursor(data?.nextCursor ?? null);
     } catch (error) {
       toast.error(error.response?.data?.message || "Failed to fetch users");
     } finally {
       setLoading(false);
+      setLoadingMore(false);
     }
   }
 
+  async function loadMore() {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    await fetchUsers(nextCursor);
+  }
+
   async function promoteUser(email) {
     try {
       await http.post("/admin/promote", { email });
@@ -40,20 +60,12 @@ export default function AdminUsers() {
     }
   }
 
+  // search runs on the server (prefix of email or name); debounce the typing
   useEffect(() => {
-    fetchUsers();
-  }, []);
-
-  // Filter logic for search
-  const filteredUsers = useMemo(() => {
-    if (!search.trim()) return users;
-
-    return users.filter((u) =>
-      (u.name ?? "")
-        .toLowerCase()
-        .includes(search.toLowerCase())
-    );
-  }, [users, search]);
+    const t = setTimeout(() => fetchUsers(), 300);
+    return () => clearTimeout(t);
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [search, role]);
 
   if (loading) {
     return (
@@ -72,16 +84,29 @@ export default function AdminUsers() {
           Registered Users
         </h2>
 
-        {/* SEARCH BAR */}
-        <div className="relative w-full sm:w-64">
-          <Search className="absolute left-3 top-2.5 h-5 w-5 text-gray-400" />
-          <input
-            type="text"
-            placeholder="Search by name..."
-            value={search}
-            onChange={(e) => setSearch(e.target.value)}
-            className="pl-10 w-full rounded-xl border-gray-300 shadow-sm focus:ring-indigo-500"
-          />
+        <div className="flex w-full sm:w-auto gap-3">
+          {/* ROLE FILTER */}
+          <select
+            value={role}
+            onChange={(e) => setRole(e.target.value)}
+            className="rounded-xl border-gray-300 shadow-sm focus:ring-indigo-500"
+          >
+            <option value="">All roles</option>
+            <option value="ADMIN">Admins</option>
+            <option value="CUSTOMER">Customers</option>
+          </select>
+
+          {/* SEARCH BAR */}
+          <div className="relative w-full sm:w-64">
+            <Search className="absolute left-3 top-2.5 h-5 w-5 text-gray-400" />
+            <input
+              type="text"
+              placeholder="Search by name or email..."
+              value={search}
+              onChange={(e) => setSearch(e.target.value)}
+              className="pl-10 w-full rounded-xl border-gray-300 shadow-sm focus:ring-indigo-500"
+            />
+          </div>
         </div>
       </div>
 
@@ -98,7 +123,7 @@ export default function AdminUsers() {
           </thead>
 
           <tbody className="divide-y divide-gray-200">
-            {filteredUsers.map((u, idx) => {
+            {users.map((u, idx) => {
               const roles = Array.isArray(u.roles) ? u.roles : [...(u.roles ?? [])];
               const isAdmin = roles.includes("ADMIN");
 
@@ -129,7 +154,7 @@ export default function AdminUsers() {
               );
             })}
 
-            {filteredUsers.length === 0 && (
+            {users.length === 0 && (
               <tr>
                 <td colSpan={4} className="py-6 text-center text-gray-500">
                   No matching users found.
@@ -139,6 +164,18 @@ export default function AdminUsers() {
           </tbody>
         </table>
       </div>
+
+      {nextCursor && (
+        <div className="mt-4 text-center">
+          <button
+            onClick={loadMore}
+            disabled={loadingMore}
+            className="rounded-lg border border-gray-300 px-4 py-1.5 text-gray-700 hover:bg-gray-50 transition disabled:opacity-50"
+          >
+            {loadingMore ? "Loading…" : "Load more"}
+          </button>
+        </div>
+      )}
     </div>
   );
 }